@@ -48,6 +48,8 @@ public class MapReader {
 	private int rainfall[][];
 	private double depth[][];
 	private String soil[][];
+	private double dzdx[][];	// per cell slope upwards to the east
+	private double dzdy[][];	// per cell slope upwards to the south
 	
 	public MapReader(String filename) {
 		JsonParser parser;
@@ -206,22 +208,35 @@ public class MapReader {
 	 * slope upwards to the east
 	 */
 	public double dZdX(int row, int col) {
-		if (col == width - 1)
-			col--;
-		double dz = altitude[row][col+1] - altitude[row][col];
-		double dx = tileSize;
-		return dz/dx;
+		if (dzdx == null)
+			derivatives();
+		return dzdx[row][col];
 	}
 
 	/**
 	 * slope upwards to the south
 	 */
 	public double dZdY(int row, int col) {
-		if (row == height - 1)
-			row--;
-		double dz = altitude[row+1][col] - altitude[row][col];
+		if (dzdy == null)
+			derivatives();
+		return dzdy[row][col];
+	}
+
+	/**
+	 * compute the east and south slopes of every cell (once)
+	 */
+	private void derivatives() {
+		double dx = tileSize;
 		double dy = tileSize;
-		return dz/dy;
+		dzdx = new double[height][width];
+		dzdy = new double[height][width];
+		for(int row = 0; row < height; row++)
+			for(int col = 0; col < width; col++) {
+				int c = (col == width - 1) ? col - 1 : col;
+				int r = (row == height - 1) ? row - 1 : row;
+				dzdx[row][col] = (altitude[row][c+1] - altitude[row][c]) / dx;
+				dzdy[row][col] = (altitude[r+1][col] - altitude[r][col]) / dy;
+			}
 	}
 	
 	/**
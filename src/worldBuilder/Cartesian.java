@@ -10,8 +10,14 @@ public class Cartesian {
 	public int width;
 	/** number of tile rows in this map */
 	public int height;
-	/** the nearest MeshPoints to every tile in our map	*/
-	public Vicinity cells[][];
+	/** number of neighbor slots per tile	*/
+	public int stride;
+	/** indices of the nearest MeshPoints to every tile (or -1), stride per tile	*/
+	public int[] neighbors;
+	/** (normalized) inverse-distance weight of each of those MeshPoints	*/
+	public double[] weights;
+	/** distance (map units) from the tile to each of those MeshPoints	*/
+	public double[] distances;
 	
 	/** types of vicinities				*/
 	public enum vicinity {
@@ -20,6 +26,15 @@ public class Cartesian {
 		POLYGON		// the surrounding polygon
 	}
 	
+	// a (NEIGHBORS) vicinity has the nearest neighbors in each direction
+	private static final int SE = 0;
+	private static final int SW = 1;
+	private static final int NW = 2;
+	private static final int NE = 3;
+	private static final int QUADRANTS = 4;
+	
+	private static final int MIN_BAND = 8;	// rows per parallel task
+	
 	// private static final int ENCODE_DEBUG = 3;
 
 	/**
@@ -32,34 +47,114 @@ public class Cartesian {
 	 * @param width ... width of desired array
 	 * @param height ... height of desired array
 	 * @param type ... type of vicinity (NEAREST, NEIGHBORS, POLYGON)
+	 * 
+	 * Note: rather than allocating a Vicinity for every tile, we keep
+	 *		 the neighbor indices and weights for all tiles in a pair of
+	 *		 flat arrays, with a fixed number (stride) of slots per tile.
+	 *		 POLYGON vicinities are (as they have been for some time)
+	 *		 computed as NEIGHBORS (nearest in each quadrant) vicinities.
 	 */
 	public Cartesian(Mesh mesh, 
 					double left, double top, double right, double bottom, 
 					int width, int height, vicinity type) {	
+		this(mesh, left, top, right, bottom, width, height, type, 0, height);
+	}
+	
+	/**
+	 * create a Cartesian map for a band of rows within a larger one
+	 * @param mesh ... Mesh of Voronoi points
+	 * @param left ... left edge of (entire) mapped area
+	 * @param top ... top of (entire) mapped area
+	 * @param right ... right edge of (entire) mapped area
+	 * @param bottom ... bottom edge of (entire) mapped area
+	 * @param width ... width of (entire) array
+	 * @param height ... height of (entire) array
+	 * @param type ... type of vicinity (NEAREST, NEIGHBORS, POLYGON)
+	 * @param firstRow ... first row (of entire array) in this band
+	 * @param rows ... number of rows in this band
+	 * 
+	 * Note: the tiles are at exactly the same coordinates as the
+	 *		 corresponding rows of the entire array, so a map built
+	 *		 in bands is identical to one built all at once.
+	 */
+	public Cartesian(Mesh mesh, 
+					double left, double top, double right, double bottom, 
+					int width, int height, vicinity type, int firstRow, int rows) {	
 		// note the key parameters
-		this.height = height;
+		this.height = rows;
 		this.width = width;
+		this.stride = (type == vicinity.NEAREST) ? 1 : QUADRANTS;
 		
 		// allocate the arrays
-		cells = new Vicinity[height][width];
+		neighbors = new int[rows * width * stride];
+		weights = new double[rows * width * stride];
+		distances = new double[rows * width * stride];
 		
 		// figure out the spacing
 		double dx = (double)(right - left) / width;
 		double dy = (double)(bottom - top) / height;
 		
 		// create the Cartesian->Voronoi map for the specified region
-		for(int r = 0; r < height; r++) {
-			double y = top + (r * dy);
-			for(int c = 0; c < width; c++) {
-				double x = left + (c * dx);
-				if (type == vicinity.NEIGHBORS)
-					cells[r][c] = new Proxcimity(mesh, x, y);
-				else if (type == vicinity.POLYGON)
-					cells[r][c] = new Proxcimity(mesh, x, y);
-				else
-					cells[r][c] = new Nearest(mesh, x, y);
+		//	(each row is independent, so they can be done in parallel)
+		final MeshGrid grid = mesh.grid();
+		Parallel.forBands(rows, MIN_BAND, (first, last) -> {
+			for(int r = first; r < last; r++) {
+				double y = top + ((firstRow + r) * dy);
+				for(int c = 0; c < width; c++) {
+					double x = left + (c * dx);
+					int base = ((r * width) + c) * stride;
+					if (stride == 1)
+						neighbors[base] = grid.nearest(x, y);
+					else {
+						neighbors[base + SE] = grid.nearest(x, y, true, true);
+						neighbors[base + SW] = grid.nearest(x, y, false, true);
+						neighbors[base + NW] = grid.nearest(x, y, false, false);
+						neighbors[base + NE] = grid.nearest(x, y, true, false);
+					}
+					weigh(mesh, base, x, y);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * compute the distances and normalized inverse-distance weights for one tile
+	 * @param mesh ... Mesh of Voronoi points
+	 * @param base ... index of the tile's first slot
+	 * @param x ... map coordinate of the tile
+	 * @param y ... map coordinate of the tile
+	 */
+	private void weigh(Mesh mesh, int base, double x, double y) {
+		// note the distance to each neighbor (nearestValid uses them all)
+		int onTop = -1;
+		for(int n = base; n < base + stride; n++)
+			if (neighbors[n] >= 0) {	// may not be in all quadrants
+				MeshPoint p = mesh.vertices[neighbors[n]];
+				double dx = p.x - x;
+				double dy = p.y - y;
+				distances[n] = Math.sqrt((dx*dx) + (dy*dy));
+				if (distances[n] == 0 && onTop < 0)
+					onTop = n;
 			}
+		
+		// a tile right on top of a MeshPoint takes only its value
+		if (onTop >= 0) {
+			for(int n = base; n < base + stride; n++)
+				weights[n] = (n == onTop) ? 1.0 : 0.0;
+			return;
 		}
+		
+		double sumWeights = 0.0;
+		for(int n = base; n < base + stride; n++)
+			if (neighbors[n] >= 0) {
+				weights[n] = 1/distances[n];
+				sumWeights += weights[n];
+			}
+		
+		// normalize weights to sum to 1
+		for(int n = base; n < base + stride; n++)
+			if (neighbors[n] >= 0)
+				weights[n] /= sumWeights;
 	}
 	
 	/**
@@ -69,14 +164,49 @@ public class Cartesian {
 	 * @return Cartesian array of interpolated values
 	 */
 	public double[][] interpolate(double[] meshValues) {
-		double[][] result = new double[height][width];
+		double[][] layers = { meshValues };
+		return interpolate(layers, null)[0];
+	}
+	
+	/**
+	 * interpolate several sets of values in a single pass over the cells
+	 * 
+	 * @param layers - arrays of per-MeshPoint values (e.g. height, erosion, rain)
+	 * @param results - (reusable) Cartesian arrays for the interpolated values
+	 * 		(any that are missing or the wrong size will be (re)allocated)
+	 * @return Cartesian arrays of interpolated values (one per layer)
+	 */
+	public double[][][] interpolate(double[][] layers, double[][][] results) {
+		final int numLayers = layers.length;
+		if (results == null || results.length != numLayers)
+			results = new double[numLayers][][];
+		for(int l = 0; l < numLayers; l++)
+			if (results[l] == null || results[l].length != height || results[l][0].length != width)
+				results[l] = new double[height][width];
 		
-		for(int r = 0; r < height; r++) {
-			for(int c = 0; c < width; c++) {
-				result[r][c] = cells[r][c].interpolate(meshValues);
+		final double[][][] result = results;
+		Parallel.forBands(height, MIN_BAND, (first, last) -> {
+			double[] sums = new double[numLayers];
+			for(int r = first; r < last; r++) {
+				int n = r * width * stride;
+				for(int c = 0; c < width; c++) {
+					// weighted sums of neighboring point values
+					for(int l = 0; l < numLayers; l++)
+						sums[l] = 0.0;
+					for(int end = n + stride; n < end; n++) {
+						int p = neighbors[n];
+						if (p >= 0) {
+							double w = weights[n];
+							for(int l = 0; l < numLayers; l++)
+								sums[l] += w * layers[l][p];
+						}
+					}
+					for(int l = 0; l < numLayers; l++)
+						result[l][r][c] = sums[l];
+				}
 			}
-		}
-		return result;
+		});
+		return results;
 	}
 	
 	/**
@@ -84,15 +214,57 @@ public class Cartesian {
 	 * 
 	 * @param meshValues - array of per-MeshPoint values
 	 * @return Cartesian array of per-tile values
+	 * 
+	 * Note: like Vicinity.nearest, this returns the value of the
+	 *		 first MeshPoint in each tile's vicinity.
 	 */
 	public double[][] nearest(double[] meshValues) {
 		double[][] result = new double[height][width];
 		
-		for(int r = 0; r < height; r++) {
-			for(int c = 0; c < width; c++) {
-				result[r][c] = cells[r][c].nearest(meshValues);
+		Parallel.forBands(height, MIN_BAND, (first, last) -> {
+			for(int r = first; r < last; r++) {
+				double[] row = result[r];
+				int base = r * width * stride;
+				for(int c = 0; c < width; c++, base += stride) {
+					for(int n = base; n < base + stride; n++)
+						if (neighbors[n] >= 0) {
+							row[c] = meshValues[neighbors[n]];
+							break;
+						}
+				}
 			}
-		}
+		});
+		return result;
+	}
+	
+	/**
+	 * use the nearest MeshPoint with a VALID value for every Cartesian cell
+	 * 
+	 * @param meshValues - array of per-MeshPoint values
+	 * @param invalid - the value to be ignored
+	 * @return Cartesian array of per-tile values (or invalid)
+	 * 
+	 * This function is used to find the water level associated with
+	 * the nearest neighbor, where most nodes do not have a water level
+	 */
+	public double[][] nearestValid(double[] meshValues, double invalid) {
+		double[][] result = new double[height][width];
+		
+		Parallel.forBands(height, MIN_BAND, (first, last) -> {
+			for(int r = first; r < last; r++) {
+				double[] row = result[r];
+				int base = r * width * stride;
+				for(int c = 0; c < width; c++, base += stride) {
+					// find the closest point with a valid value
+					int nearest = -1;
+					for(int n = base; n < base + stride; n++)
+						if (neighbors[n] >= 0 && meshValues[neighbors[n]] != invalid)
+							if (nearest < 0 || distances[n] < distances[nearest])
+								nearest = n;
+					row[c] = (nearest >= 0) ? meshValues[neighbors[nearest]] : invalid;
+				}
+			}
+		});
 		return result;
 	}
 	
@@ -0,0 +1,117 @@
+package worldBuilder;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * terrain derivatives (gradients, slope and aspect) of a Cartesian
+ * height grid, computed once (in parallel) into per-tile planes, so
+ * that exporters (and the RPGMLeveler) do not have to recompute the
+ * finite differences for every rule that bids on every tile.
+ *
+ * All differences are in Z units per tile, and are computed from
+ * the eroded heights (height - erosion).  Callers convert them to
+ * whatever units (and per-meter slopes) they need.
+ *
+ * The most recently computed field is (weakly) remembered, so that
+ * exporters working from the same (up-loaded) grids share a single
+ * field, without keeping it alive once no exporter is using it.
+ */
+public class DerivativeField {
+
+	/** grid dimensions (in tiles)	*/
+	public int rows, cols;
+	/** change in Z to the next tile east (Z units/tile)	*/
+	public double[][] dZdX;
+	/** change in Z to the next tile south (Z units/tile)	*/
+	public double[][] dZdY;
+	/** length of the (west/north) gradient vector (Z units/tile)	*/
+	public double[][] gradient;
+	/** larger of the (west/north) changes in Z (Z units/tile)	*/
+	public double[][] steepest;
+	/** compass orientation (0-359) of each face	*/
+	public double[][] aspect;
+
+	private double[][] heights;		// height grid we were computed from
+	private double[][] erode;		// erosion grid we were computed from
+
+	private static WeakReference<DerivativeField> recent;	// most recently computed field
+
+	private static final int MIN_BAND = 16;	// rows per parallel task
+
+	/**
+	 * return the derivative field for a pair of grids
+	 * @param heights ... per tile height (Z units)
+	 * @param erode ... per tile erosion (Z units), or null
+	 * @return (possibly shared) field for those grids
+	 *
+	 *	Note: the grids must not be changed after their field is computed
+	 */
+	public static synchronized DerivativeField get(double[][] heights, double[][] erode) {
+		DerivativeField field = (recent == null) ? null : recent.get();
+		if (field == null || field.heights != heights || field.erode != erode) {
+			field = new DerivativeField(heights, erode);
+			recent = new WeakReference<DerivativeField>(field);
+		}
+		return field;
+	}
+
+	/**
+	 * compute the derivatives of a height grid
+	 * @param heights ... per tile height (Z units)
+	 * @param erode ... per tile erosion (Z units), or null
+	 */
+	public DerivativeField(double[][] heights, double[][] erode) {
+		this.heights = heights;
+		this.erode = erode;
+		rows = heights.length;
+		cols = heights[0].length;
+
+		dZdX = new double[rows][cols];
+		dZdY = new double[rows][cols];
+		gradient = new double[rows][cols];
+		steepest = new double[rows][cols];
+		aspect = new double[rows][cols];
+
+		// forward differences (repeating the last one on the far edges)
+		Parallel.forBands(rows, MIN_BAND, (first, last) -> {
+			for(int i = first; i < last; i++)
+				for(int j = 0; j < cols; j++) {
+					int c = (j == cols - 1) ? j - 1 : j;
+					int r = (i == rows - 1) ? i - 1 : i;
+					dZdX[i][j] = (c < 0) ? 0 : z(i, c + 1) - z(i, c);
+					dZdY[i][j] = (r < 0) ? 0 : z(r + 1, j) - z(r, j);
+				}
+		});
+
+		// slopes to the west/north neighbors (east/south on the near edges)
+		//	(these are the forward differences from those neighbors)
+		Parallel.forBands(rows, MIN_BAND, (first, last) -> {
+			for(int i = first; i < last; i++)
+				for(int j = 0; j < cols; j++) {
+					double dx = dZdX[i][(j > 0) ? j - 1 : j];
+					double dy = dZdY[(i > 0) ? i - 1 : i][j];
+					gradient[i][j] = Math.sqrt(dx*dx + dy*dy);
+					double ax = Math.abs(dx);
+					double ay = Math.abs(dy);
+					steepest[i][j] = ax > ay ? ax : ay;
+
+					// orientation of the (forward) face
+					double dzdx = dZdX[i][j];
+					double dzdy = dZdY[i][j];
+					double theta = Math.atan(-dzdx/dzdy) * 180 / Math.PI;
+					if (dzdy < 0)
+						theta += 180;
+					else if (dzdx > 0)
+						theta += 360;
+					aspect[i][j] = theta;
+				}
+		});
+	}
+
+	/**
+	 * eroded height of a tile
+	 */
+	private double z(int row, int col) {
+		return (erode == null) ? heights[row][col] : heights[row][col] - erode[row][col];
+	}
+}
@@ -30,6 +30,12 @@ public class Drainage {
 	private int sinkMap[];			// the point to which each MeshPoint drains
 	private int references[];		// number of nodes for which we are downHill
 	
+	// state we keep for incremental recomputes
+	protected int basin[];			// last point to which each MeshPoint's water flows
+	protected boolean reflow[];		// points whose water flow must be recomputed (null = all)
+	private double lastHeight[];	// heightMap at the last recompute
+	private double lastSeaLevel;	// map sea level at the last recompute
+	
 	protected static final int UNKNOWN = -666;	// sinkMap: sink point not yet found
 	protected static final int OCEAN = -1;		// sinkMap: drains to ocean
 	protected static final int OFF_MAP = -2;	// sinkMap: drains off map
@@ -82,6 +88,7 @@ public class Drainage {
 		this.outlet = new double[mesh.vertices.length];
 		this.byHeight = new int[mesh.vertices.length];
 		this.byFlow = new int[mesh.vertices.length];
+		this.basin = new int[mesh.vertices.length];
 		
 		references = new int[mesh.vertices.length];
 		
@@ -110,6 +117,7 @@ public class Drainage {
 		// reload the maps that are likely to have changed
 		this.heightMap = map.getHeightMap();
 		this.erodeMap = map.getErodeMap();
+		this.lastHeight = null;	// in case we don't finish
 
 		// reinitialize the maps we are to create
 		for(int i = 0; i < mesh.vertices.length; i++) {
@@ -159,35 +167,19 @@ public class Drainage {
 				continue;
 
 			// note the highest and lowest points on the map
-			double best = heightMap[i] - erodeMap[i];
-			if (best > map.max_height)
-				map.max_height = best;
-			else if (best < map.min_height)
-				map.min_height = best;
+			double z = heightMap[i] - erodeMap[i];
+			if (z > map.max_height)
+				map.max_height = z;
+			else if (z < map.min_height)
+				map.min_height = z;
 			
 			// find the lowest neighbor who is lower than me
-			for( int n = 0; n < mesh.vertices[i].neighbors; n++) {
-				int x = mesh.vertices[i].neighbor[n].index;
-				double z = heightMap[x] - erodeMap[x];
-				if (z < best) {
-					downHill[i] = x;
-					best = z;
-				}
-			}
-			
-			if (downHill[i] < 0) {	// no down-hill neighbors found
-				if (mesh.vertices[i].neighbors < 3)
-					downHill[i] = OFF_MAP;
+			findDownHill(i);
+			if (downHill[i] < 0)	// no down-hill neighbors found
 				continue;
-			}
 			
-			// record downHill reference and slope
-			int d = downHill[i];
-			references[d] += 1;
-			double s = slope(d, i);
-			if (s < 0)
-				s = -s;
-			slopeMap[i] = s;
+			// record the range of slopes
+			double s = slopeMap[i];
 			if (s > 0 && s < map.min_slope)
 				map.min_slope = s;
 			if (s > map.max_slope)
@@ -198,47 +190,346 @@ public class Drainage {
 		 * 3. find sink-point for each non-oceanic point
 		 *	  (scan lowest-to-highest because sink points are transitive)
 		 */
-		heightSort(0, landPoints - 1);
-		for(int i = landPoints - 1; i >= 0; i--) {
-			int point = byHeight[i];
-			if (sinkMap[point] != UNKNOWN)	// already know this point
-				continue;
-			
-			// low points on edge of map drain off-map
-			if (mesh.vertices[point].neighbors < 3) {
-				sinkMap[point] = OFF_MAP;
+		heightSort(byHeight, 0, landPoints - 1);
+		for(int i = landPoints - 1; i >= 0; i--)
+			findSink(byHeight[i]);
+
+		/*
+		 * 4. find the escape point from each local sink, and then 
+		 *	  re-route all flow in that sink to the escape point
+		 */
+		if (parms.drainage == Parameters.PRIORITY_FLOOD)
+			priorityFlood();
+		else {
+			int landIndex[] = new int[landPoints];	// land points, in index order
+			for(int i = 0, n = 0; i < mesh.vertices.length; i++)
+				if (!oceanic[i])
+					landIndex[n++] = i;
+			escapeSinks(landIndex, byHeight, landPoints);
+		}
+		
+		/*
+		 * 5. create the byFlow map, which is sorted in water flow order
+		 */
+		check_refcounts();		// debug audit
+		sortByFlow();
+		
+		// note where everything drains, and the heights we worked from
+		findBasins();
+		reflow = null;
+		lastHeight = heightMap.clone();
+		lastSeaLevel = map.getSeaLevel();
+		
+		// if we have a debug log, close it
+		if (debug_log != null)
+			debug_log.close();
+	}
+	
+	/**
+	 * recompute the drainage of only those basins affected by a change
+	 * @param changed ... per point booleans: which heights have changed
+	 *
+	 *    A basin is the set of points whose water ends up at the same
+	 *    place (an ocean point, the edge of the map, or a sink from
+	 *    which it cannot escape).  The basins that contain (or border)
+	 *    changed points are re-derived from scratch, and reflow notes
+	 *    the (old and new) basins whose water flow must be recomputed.
+	 *    Other basins keep the drainage they had, even if their erosion
+	 *    has changed since then.
+	 *
+	 *    Changes that might affect the ocean, or the use of priority-flood
+	 *    (which floods the whole map) force a full recompute.
+	 */
+	public void recompute(boolean changed[]) {
+		this.heightMap = map.getHeightMap();
+		this.erodeMap = map.getErodeMap();
+		int points = mesh.vertices.length;
+		if (lastHeight == null || lastSeaLevel != map.getSeaLevel() ||
+				parms.drainage != Parameters.ESCAPE_SCAN) {
+			recompute();
+			return;
+		}
+		
+		// 1. note the changed points, and make sure the ocean is unaffected
+		boolean affected[] = new boolean[points];	// basins to be re-derived
+		int changes = 0;
+		for(int i = 0; i < points; i++) {
+			if ((changed == null || !changed[i]) && heightMap[i] == lastHeight[i])
 				continue;
+			if (oceanic[i] || heightMap[i] <= sea_level) {
+				recompute();
+				return;
 			}
-			
-			// others inherit sink from their downHill neighbor
-			int d = downHill[point];
-			if (d >= 0) {
-					sinkMap[point] = oceanic[d] ? OCEAN : sinkMap[d];
-					continue;
+			changes++;
+			affected[basin[i]] = true;
+			for(int n = 0; n < mesh.vertices[i].neighbors; n++) {
+				int x = mesh.vertices[i].neighbor[n].index;
+				if (!oceanic[x])
+					affected[basin[x]] = true;
 			}
-			
-			// any point with no down-hill neighbors is a sink
-			sinkMap[point] = point;
 		}
-
+		
+		// 2. collect all the points in the affected basins
+		int region[] = new int[landPoints];	// affected points, in index order
+		int regionPoints = 0;
+		boolean inRegion[] = new boolean[points];
+		for(int i = 0; i < points; i++)
+			if (!oceanic[i] && affected[basin[i]]) {
+				region[regionPoints++] = i;
+				inRegion[i] = true;
+			}
+		if (regionPoints > landPoints / 2) {	// cheaper to do it all
+			recompute();
+			return;
+		}
+		
+		// the water flow of these (old) basins must be recomputed
+		boolean flowBasins[] = new boolean[points];
+		for(int i = 0; i < regionPoints; i++)
+			flowBasins[basin[region[i]]] = true;
+		
+		// 3. forget what we knew about those points
+		for(int i = 0; i < regionPoints; i++) {
+			int x = region[i];
+			downHill[x] = UNKNOWN;
+			slopeMap[x] = 0.0;
+			sinkMap[x] = UNKNOWN;
+			outlet[x] = UNKNOWN;
+		}
+		
+		// 4. determine their down-hill neighbors
+		for(int i = 0; i < regionPoints; i++)
+			findDownHill(region[i]);
+		
+		// 5. re-sort them by height, and merge them back into byHeight
+		int sorted[] = new int[regionPoints];
+		for(int i = 0; i < regionPoints; i++)
+			sorted[i] = region[i];
+		if (regionPoints > 1)
+			heightSort(sorted, 0, regionPoints - 1);
+		int others = 0;
+		for(int i = 0; i < landPoints; i++)
+			if (!inRegion[byHeight[i]])
+				byHeight[others++] = byHeight[i];
+		for(int i = landPoints - 1, o = others - 1, r = regionPoints - 1; r >= 0; i--) {
+			if (o >= 0 && heightMap[byHeight[o]] - erodeMap[byHeight[o]] <=
+						  heightMap[sorted[r]] - erodeMap[sorted[r]])
+				byHeight[i] = byHeight[o--];
+			else
+				byHeight[i] = sorted[r--];
+		}
+		
+		// 6. find their sink points, lowest first
+		for(int i = regionPoints - 1; i >= 0; i--)
+			findSink(sorted[i]);
+		
+		// 7. find the escape points from their sinks, noting any
+		//	  neighboring points whose drainage that changes
+		int border[] = new int[points];
+		int borderPoints = 0;
+		for(int i = 0; i < regionPoints; i++) {
+			MeshPoint p = mesh.vertices[region[i]];
+			for(int n = 0; n < p.neighbors; n++) {
+				int x = p.neighbor[n].index;
+				if (!inRegion[x]) {
+					inRegion[x] = true;		// (so we only note it once)
+					border[borderPoints++] = x;
+				}
+			}
+		}
+		int borderDown[] = new int[borderPoints];
+		double borderOutlet[] = new double[borderPoints];
+		for(int i = 0; i < borderPoints; i++) {
+			borderDown[i] = downHill[border[i]];
+			borderOutlet[i] = outlet[border[i]];
+		}
+		escapeSinks(region, sorted, regionPoints);
+		int touched = 0;
+		for(int i = 0; i < borderPoints; i++) {
+			int x = border[i];
+			if (downHill[x] != borderDown[i] || outlet[x] != borderOutlet[i]) {
+				flowBasins[basin[x]] = true;
+				border[touched++] = x;
+			}
+		}
+		
 		/*
-		 * 4. find the escape point from each local sink, and then 
-		 *	  re-route all flow in that sink to the escape point
+		 * 8. re-create the byFlow map, which is sorted in water flow order
 		 */
+		countReferences();
+		check_refcounts();		// debug audit
+		sortByFlow();
+		
+		// 9. the water flow of the (new) basins must also be recomputed
+		findBasins();
+		for(int i = 0; i < regionPoints; i++)
+			flowBasins[basin[region[i]]] = true;
+		for(int i = 0; i < touched; i++)
+			flowBasins[basin[border[i]]] = true;
+		reflow = new boolean[points];
+		int reflows = 0;
+		for(int i = 0; i < points; i++)
+			if (flowBasins[basin[i]]) {
+				reflow[i] = true;
+				reflows++;
+			}
+		
+		// 10. update the height and slope ranges
+		heightRanges();
+		for(int i = 0; i < regionPoints; i++)
+			lastHeight[region[i]] = heightMap[region[i]];
+		
+		if (parms.debug_level >= HYDRO_DEBUG)
+			System.out.println("Drainage: " + changes + " changed points, re-drained " +
+								regionPoints + "/" + landPoints + " land points, " +
+								reflows + " to reflow");
+		
+		// if we have a debug log, close it
+		if (debug_log != null)
+			debug_log.close();
+	}
+	
+	/**
+	 * find the (lowest) down-hill neighbor of a point, and the slope to it
+	 * @param point ... index of the (non-oceanic) point
+	 */
+	private void findDownHill(int point) {
+		double best = heightMap[point] - erodeMap[point];
+		for( int n = 0; n < mesh.vertices[point].neighbors; n++) {
+			int x = mesh.vertices[point].neighbor[n].index;
+			double z = heightMap[x] - erodeMap[x];
+			if (z < best) {
+				downHill[point] = x;
+				best = z;
+			}
+		}
+		
+		if (downHill[point] < 0) {	// no down-hill neighbors found
+			if (mesh.vertices[point].neighbors < 3)
+				downHill[point] = OFF_MAP;
+			return;
+		}
+		
+		// record downHill reference and slope
+		int d = downHill[point];
+		references[d] += 1;
+		double s = slope(d, point);
+		if (s < 0)
+			s = -s;
+		slopeMap[point] = s;
+	}
+	
+	/**
+	 * find the sink-point for a non-oceanic point
+	 * @param point ... index of the point
+	 *
+	 *	  (points must be visited lowest-to-highest, because sink points
+	 *	   are inherited from down-hill neighbors)
+	 */
+	private void findSink(int point) {
+		if (sinkMap[point] != UNKNOWN)	// already know this point
+			return;
+		
+		// low points on edge of map drain off-map
+		if (mesh.vertices[point].neighbors < 3) {
+			sinkMap[point] = OFF_MAP;
+			return;
+		}
+		
+		// others inherit sink from their downHill neighbor
+		int d = downHill[point];
+		if (d >= 0) {
+				sinkMap[point] = oceanic[d] ? OCEAN : sinkMap[d];
+				return;
+		}
+		
+		// any point with no down-hill neighbors is a sink
+		sinkMap[point] = point;
+	}
+	
+	/**
+	 * note the last point to which the water from each point flows
+	 *	  (an ocean point, or a land point with no down-hill neighbor)
+	 */
+	private void findBasins() {
+		for(int i = 0; i < mesh.vertices.length; i++)
+			basin[i] = i;
+		
+		// byFlow order ensures every downHill has been done before us
+		for(int i = landPoints - 1; i >= 0; i--) {
+			int point = byFlow[i];
+			int d = downHill[point];
+			if (d >= 0)
+				basin[point] = basin[d];
+		}
+	}
+	
+	/**
+	 * recount the references to each down-hill point
+	 */
+	private void countReferences() {
+		for(int i = 0; i < mesh.vertices.length; i++)
+			references[i] = 0;
+		for(int i = 0; i < mesh.vertices.length; i++)
+			if (!oceanic[i] && downHill[i] >= 0)
+				references[downHill[i]] += 1;
+	}
+	
+	/**
+	 * recompute the ranges of land heights and down-hill slopes
+	 */
+	private void heightRanges() {
+		map.min_slope = TOO_BIG;
+		map.max_slope = TOO_SMALL;
+		map.max_height = TOO_SMALL;
+		map.min_height = TOO_BIG;
+		for(int i = 0; i < mesh.vertices.length; i++) {
+			if (oceanic[i])
+				continue;
+			double z = heightMap[i] - erodeMap[i];
+			if (z > map.max_height)
+				map.max_height = z;
+			else if (z < map.min_height)
+				map.min_height = z;
+			
+			double s = slopeMap[i];
+			if (s > 0 && s < map.min_slope)
+				map.min_slope = s;
+			if (s > 0 && s > map.max_slope)
+				map.max_slope = s;
+		}
+	}
+
+	/**
+	 * find the escape point from each local sink (by scanning all points
+	 * in the sink for the lowest outside neighbor), re-route all flow in
+	 * that sink to the escape point, and repeat until no more sinks can
+	 * be combined.
+	 * 
+	 *	  a) reroute flow from sink-point to escape-point
+	 *	  b) move all points in this sink to escape-point's sink
+	 *	  c) escape points on edge of map are considered to drain off-map
+	 *
+	 * @param sinks ... the points (in index order) that might be sinks
+	 * @param members ... the same points, sorted by height
+	 * @param count ... number of points in those lists
+	 */
+	private void escapeSinks(int sinks[], int members[], int count) {
 		int escapeTo, escapeThru;
 		double escapeHeight;
 		boolean combined = false;
 		do { combined = false;	// iterate until no more changes
 			// find a local sink with no known escape point
-			for(int s = 0; s < mesh.vertices.length; s++) {
+			for(int k = 0; k < count; k++) {
+				int s = sinks[k];
 				if (oceanic[s] || sinkMap[s] != s || downHill[s] >= 0)
 					continue;
 				
 				// search all points in this sink for lowest outside neighbor
 				escapeTo = -1; escapeThru = -1;
 				escapeHeight = Parameters.z_extent;
-				for(int i = 0; i < byHeight.length; i++) {
-					int point = byHeight[i];
+				for(int i = 0; i < count; i++) {
+					int point = members[i];
 					if (sinkMap[point] != s)	// point not in this sink
 						continue;
 					
@@ -292,11 +583,12 @@ public class Drainage {
 					}
 					
 					// 4b move all points in this sink to escape point's sink
-					for(int i = 0; i < mesh.vertices.length; i++) {
-						if (sinkMap[i] == s) {
-							sinkMap[i] = sinkMap[escapeTo];
-							if (heightMap[i] - erodeMap[i] <= escapeHeight)
-								outlet[i] = escapeHeight;
+					for(int i = 0; i < count; i++) {
+						int point = members[i];
+						if (sinkMap[point] == s) {
+							sinkMap[point] = sinkMap[escapeTo];
+							if (heightMap[point] - erodeMap[point] <= escapeHeight)
+								outlet[point] = escapeHeight;
 						}
 					}
 					
@@ -331,18 +623,137 @@ public class Drainage {
 						window.highlight(s, Color.RED);
 			}
 		} while (combined);
+	}
+	
+	/**
+	 * route all sinks to their escape points with a priority-flood
+	 * 
+	 *	Starting from the ocean and the edges of the map, we visit points
+	 *	in order of their (flooded) water level, where a point's water
+	 *	level is the greater of its own height and the level of the
+	 *	(already visited) neighbor from which it was reached.  Points
+	 *	whose water level is above their height are under a lake whose
+	 *	surface is at that level, and the point from which a lake was 
+	 *	first reached is its escape point.
+	 *
+	 *	  a) points in a lake (and sink points) flow towards the escape
+	 *	     point, along the path by which the flood reached them
+	 *	  b) points in a lake (and the escape point) get an outlet
+	 *	  c) escape points on edge of map drain off-map
+	 *
+	 *	Each point is added to (and removed from) the heap once, so
+	 *	this is O(N log N), rather than O(sinks x N) per pass.
+	 */
+	private void priorityFlood() {
+		int points = mesh.vertices.length;
+		double level[] = new double[points];	// flooded water level
+		int parent[] = new int[points];			// point we were reached from
+		boolean reached[] = new boolean[points];
+		int order[] = new int[points];			// land points, in visit order
+		int visited = 0;
 		
-		/*
-		 * 5. create the byFlow map, which is sorted in water flow order
-		 */
-		check_refcounts();		// debug audit
-		sortByFlow();
+		// the ocean and the edges of the map are where water escapes
+		PointHeap heap = new PointHeap(points);
+		for(int i = 0; i < points; i++) {
+			parent[i] = -1;
+			if (oceanic[i] || mesh.vertices[i].neighbors < 3) {
+				level[i] = heightMap[i] - erodeMap[i];
+				reached[i] = true;
+				heap.add(i, level[i]);
+			}
+		}
 		
-		// if we have a debug log, close it
-		if (debug_log != null)
-			debug_log.close();
+		// flood inwards, from the lowest known water level
+		while(!heap.isEmpty()) {
+			int point = heap.pop();
+			if (!oceanic[point])
+				order[visited++] = point;
+			for(int n = 0; n < mesh.vertices[point].neighbors; n++) {
+				int x = mesh.vertices[point].neighbor[n].index;
+				if (reached[x])
+					continue;
+				double z = heightMap[x] - erodeMap[x];
+				level[x] = (z > level[point]) ? z : level[point];
+				parent[x] = point;
+				reached[x] = true;
+				heap.add(x, level[x]);
+			}
+		}
+		
+		// 4a. route lakes and sinks towards their escape points
+		//	   (visit order ensures every downHill was visited earlier)
+		for(int i = 0; i < visited; i++) {
+			int point = order[i];
+			double z = heightMap[point] - erodeMap[point];
+			int d = downHill[point];
+			boolean flooded = level[point] > z;
+			boolean sink = d == UNKNOWN;
+			boolean intoLake = d >= 0 && !oceanic[d] && level[d] > heightMap[d] - erodeMap[d];
+			if (flooded || intoLake || sink) {
+				if (parent[point] >= 0)
+					downHill[point] = parent[point];
+				else	// 4c. escape point on the edge drains off-map
+					downHill[point] = OFF_MAP;
+			}
+			
+			// 4b. note the water level of each lake (and its escape point)
+			if (flooded) {
+				outlet[point] = level[point];
+				int p = parent[point];
+				if (!oceanic[p] && level[p] <= heightMap[p] - erodeMap[p])
+					outlet[p] = level[p];
+			}
+			
+			// every point now drains to the ocean or off the map
+			d = downHill[point];
+			if (d == OFF_MAP)
+				sinkMap[point] = OFF_MAP;
+			else if (d >= 0)
+				sinkMap[point] = oceanic[d] ? OCEAN : sinkMap[d];
+			
+			if (sink && (debug_log != null || parms.debug_level >= HYDRO_DEBUG))
+				debugSink(point, level, parent);
+		}
+		
+		// recount the references to each down-hill point
+		countReferences();
+		
+		// sink points the flood never reached (e.g. disconnected) cannot escape
+		if (parms.debug_level >= HYDRO_DEBUG)
+			for(int i = 0; i < points; i++)
+				if (!reached[i] && downHill[i] == UNKNOWN)
+					window.highlight(i, Color.RED);
 	}
-
+	
+	/**
+	 * debug output for a sink point routed by priorityFlood
+	 * @param s ... the sink point
+	 * @param level ... flooded water level of each point
+	 * @param parent ... point from which each point was flooded
+	 */
+	private void debugSink(int s, double level[], int parent[]) {
+		// follow the flood path back to the escape point
+		int escape = s;
+		while(parent[escape] >= 0 && level[escape] > heightMap[escape] - erodeMap[escape])
+			escape = parent[escape];
+		
+		// users will never care, but I've spent much debug time here
+		if (debug_log != null) {
+			double sinkHeight = heightMap[s] - erodeMap[s];
+			String msg = String.format("sink bottom %d at %.1fMSL escapes thru %d", 
+										s, parms.altitude(sinkHeight), escape);
+			msg += (sinkMap[s] == OCEAN) ? " (to the ocean)" : " (off the map)";
+			msg += String.format(" at %.1f MSL", parms.altitude(level[s]));
+			debug_log.write(msg + "\n");
+		}
+		
+		// highlights for escape point debugging (as in escapeSinks)
+		if (parms.debug_level >= HYDRO_DEBUG) {
+			window.highlight(escape, sinkMap[s] == OCEAN ? Color.BLUE : Color.GREEN);
+			window.highlight(s,  Color.ORANGE);
+		}
+	}
+	
 	/**
 	 * Create a list of land points sorted from source to sink
 	 * 	  
@@ -354,11 +765,31 @@ public class Drainage {
 	 *    Rather, we must sort based on the partial-ordering of the
 	 *    downHill pointers (which constitute a Directed Acyclic Graph),
 	 *    which we do with Kahn's Topological sort.
+	 *
+	 * Points are placed in height order until we reach one that still
+	 *    has un-placed parents.  We then sweep (in height order) through
+	 *    the remaining points, placing each one that has no un-placed
+	 *    parents, and go back to the point on which we were stuck.
+	 *    Rather than re-scanning the remaining points for each sweep,
+	 *    we keep the parent-less points in a queue, ordered by their
+	 *    position in byHeight, so each point is only handled once.
 	 */
 	private void sortByFlow() {
 		int	has_parents = 0;// first node with un-processed parents
 		int next_slot = 0;	// next free slot in byFlow list
-		boolean inList[] = new boolean[map.mesh.vertices.length];
+		boolean inList[] = new boolean[mesh.vertices.length];
+		
+		// note each point's position in the height-sorted list
+		int position[] = new int[mesh.vertices.length];
+		for(int i = 0; i < landPoints; i++)
+			position[byHeight[i]] = i;
+		
+		// queue up the points that have no parents
+		PointHeap ready = new PointHeap(mesh.vertices.length);
+		for(int i = 0; i < landPoints; i++)
+			if (references[byHeight[i]] == 0)
+				ready.add(byHeight[i], i);
+		int deferred[] = new int[landPoints];
 		
 		// while there are still nodes that have un-processed parents
 		while(has_parents < landPoints) {
@@ -370,73 +801,162 @@ public class Drainage {
 			}
 			
 			// if this node now has no parents, it can be added to list
+			//	(it must be at the head of the queue, as all earlier
+			//	 points in byHeight have already been placed)
 			if (references[point] == 0) {
-				byFlow[next_slot++] = point;
-				inList[point] = true;
-				if (downHill[point] >= 0)
-					references[downHill[point]] -= 1;
+				ready.pop();
+				next_slot = place(point, next_slot, inList, position, ready);
 				has_parents += 1;
 				continue;
 			}
 			
-			// continue processing, and then come back
+			// sweep through the parent-less points after this one, in
+			// height order, deferring those we have already passed
+			int sweep = has_parents;
+			int deferrals = 0;
 			boolean found_some = false;
-			for(int current = has_parents + 1; current < landPoints; current++) {
-				point = byHeight[current];
-				if (!inList[point] && references[point] == 0) {
-					byFlow[next_slot++] = point;
-					inList[point] = true;
-					if (downHill[point] >= 0)
-						references[downHill[point]] -= 1;
-					found_some = true;
+			while(!ready.isEmpty()) {
+				point = ready.pop();
+				if (position[point] <= sweep) {
+					deferred[deferrals++] = point;
+					continue;
 				}
+				next_slot = place(point, next_slot, inList, position, ready);
+				sweep = position[point];
+				found_some = true;
 			}
+			for(int i = 0; i < deferrals; i++)
+				ready.add(deferred[i], position[deferred[i]]);
 			
-			// if nothing was found, there is most likely a cycle in downHill
+			// if nothing was found, there must be a cycle in downHill
 			if (!found_some) {
 				System.err.println("BUG: sortByFlow stopped after " +
 									next_slot + "/" + landPoints + " placements!");
-				for(int i = 0; i < landPoints; i++) {
+				point = reportCycle(byHeight[has_parents], inList);
+				
+				// break the cycle by placing one of its points anyway
+				if (point >= 0) {
+					next_slot = place(point, next_slot, inList, position, ready);
+					continue;
+				}
+				
+				// no cycle (inconsistent references): KLUGE to get past problem
+				for(int i = has_parents; i < landPoints; i++) {
 					point = byHeight[i];
-					if (inList[point] && references[point] == 0)
+					if (inList[point])
 						continue;
-					System.err.println(String.format("    x=%d, height=%.6f, downhill=%d, sink=%d, refs=%d %s",
+					System.err.println(String.format("    x=%d, height=%.6f, downhill=%d, sink=%d, refs=%d",
 										point, heightMap[point] - erodeMap[point],
-										downHill[point], sinkMap[point], references[point],
-										(i == has_parents ? "*" : "")));
-					byFlow[next_slot++] = point;	// KLUGE to get past problem
+										downHill[point], sinkMap[point], references[point]));
+					byFlow[next_slot++] = point;
+					inList[point] = true;
 				}
-				break;
+				return;
 			}
 		}
 	}
+	
+	/**
+	 * add a point to the byFlow list, and queue its downHill neighbor
+	 *    if this was its last un-placed parent
+	 * @param point ... index of the point to be placed
+	 * @param next_slot ... next free slot in byFlow list
+	 * @param inList ... which points have already been placed
+	 * @param position ... position of each point in byHeight
+	 * @param ready ... queue of parent-less points
+	 * @return next free slot in byFlow list
+	 */
+	private int place(int point, int next_slot, boolean inList[], int position[], PointHeap ready) {
+		byFlow[next_slot++] = point;
+		inList[point] = true;
+		int d = downHill[point];
+		if (d >= 0) {
+			references[d] -= 1;
+			if (references[d] == 0 && !oceanic[d] && !inList[d])
+				ready.add(d, position[d]);
+		}
+		return next_slot;
+	}
+	
+	/**
+	 * find and report a downHill cycle above a point whose parents
+	 *    can never be placed
+	 * @param start ... index of a point that still has parents
+	 * @param inList ... which points have already been placed
+	 * @return index of the highest point in the cycle (-1 if none found)
+	 *
+	 * Every un-placed point should have an un-placed parent, so following
+	 *    those parents up-hill should eventually lead us into a cycle.
+	 *    But if the reference counts are wrong, we may run out of parents.
+	 */
+	private int reportCycle(int start, boolean inList[]) {
+		// note one un-placed parent of each un-placed point
+		int parent[] = new int[mesh.vertices.length];
+		for(int i = 0; i < parent.length; i++)
+			parent[i] = -1;
+		for(int i = 0; i < landPoints; i++) {
+			int x = byHeight[i];
+			if (!inList[x] && downHill[x] >= 0)
+				parent[downHill[x]] = x;
+		}
+		
+		// follow those parents until we revisit a point
+		boolean visited[] = new boolean[mesh.vertices.length];
+		int point = start;
+		while(!visited[point]) {
+			visited[point] = true;
+			point = parent[point];
+			if (point < 0) {
+				System.err.println("    no cycle above x=" + start + ", un-placed points:");
+				return -1;
+			}
+		}
+		
+		// then go (down-hill) around the cycle, reporting each point
+		int highest = point;
+		int x = point;
+		do {
+			System.err.println(String.format("    x=%d, height=%.6f, downhill=%d, sink=%d, refs=%d",
+								x, heightMap[x] - erodeMap[x],
+								downHill[x], sinkMap[x], references[x]));
+			if (heightMap[x] - erodeMap[x] > heightMap[highest] - erodeMap[highest])
+				highest = x;
+			x = downHill[x];
+			if (x < 0) {
+				System.err.println("    no cycle below x=" + point + ", un-placed points:");
+				return -1;
+			}
+		} while(x != point);
+		return highest;
+	}
 
 	/**
-	 * (recursive) QuickSort a list of points by height
+	 * (recursive) QuickSort a list of points by (descending) height
+	 * @param list ... list of points to be sorted
 	 * @param left ... left most index of sort region
 	 * @param right ... right most index of sort region
 	 */
-	private void heightSort(int left, int right) {
+	private void heightSort(int list[], int left, int right) {
 		// find the X coordinate of my middle element
 	    int pivotIndex = left + (right - left) / 2;
-	    int pivotPoint = byHeight[pivotIndex];
+	    int pivotPoint = list[pivotIndex];
 	    double pivotValue = heightMap[pivotPoint] - erodeMap[pivotPoint];
 
 	    // for every point in my range
 	    int i = left, j = right;
 	    while(i <= j) {
 	    	// find the first thing on left that belongs on right
-	        while(heightMap[byHeight[i]] - erodeMap[byHeight[i]] >  pivotValue)
+	        while(heightMap[list[i]] - erodeMap[list[i]] >  pivotValue)
 	            i++;
 	        // find first thing on right that belongs on left
-	        while(heightMap[byHeight[j]] - erodeMap[byHeight[j]] <  pivotValue)
+	        while(heightMap[list[j]] - erodeMap[list[j]] <  pivotValue)
 	            j--;
 
 	        if(i <= j) { 
 	        	if (i < j) {	// swap them
-	        		int tmp = byHeight[i];
-	        		byHeight[i] = byHeight[j];
-	        		byHeight[j] = tmp;
+	        		int tmp = list[i];
+	        		list[i] = list[j];
+	        		list[j] = tmp;
 	        	}
 	            i++;
 	            j--;
@@ -444,9 +964,9 @@ public class Drainage {
 	    }
 
 	    if(left < j)	// recursively sort to the left
-	        heightSort(left, j);
+	        heightSort(list, left, j);
 	    if(right > i)	// recursively sort to the right
-	        heightSort(i, right);
+	        heightSort(list, i, right);
 	}
 	
 	/**
@@ -466,19 +986,23 @@ public class Drainage {
 	 * debug routine to confirm correctness of reference counters
 	 */
 	private void check_refcounts() {
+		// count the downHill pointers to each point
+		int found[] = new int[mesh.vertices.length];
+		for(int i = 0; i < landPoints; i++) {
+			int d = downHill[byHeight[i]];
+			if (d >= 0)
+				found[d] += 1;
+		}
+		
 		int tot_expected = 0;
 		int tot_found = 0;
 		for(int i = 0; i < landPoints; i++) {
 			int point = byHeight[i];
 			int expect = references[point];
-			int found = 0;
-			for(int j = 0; j < landPoints; j++)
-				if (downHill[byHeight[j]] == point)
-					found += 1;
-			if (found != expect)
-				System.err.println("x=" + point + ", expected " + expect + ", found " + found);
+			if (found[point] != expect)
+				System.err.println("x=" + point + ", expected " + expect + ", found " + found[point]);
 			tot_expected += expect;
-			tot_found += found;
+			tot_found += found[point];
 		}
 		
 		if (parms.debug_level > 1)
@@ -487,4 +1011,3 @@ public class Drainage {
 							", pointers=" + tot_found);
 	}
 }
-
@@ -225,6 +225,24 @@ public class ExportBase extends JFrame implements WindowListener, MapListener {
 		// the write operation will be initiated in the sub-class
 	}
 	
+	/**
+	 * create the per-tile maps one band at a time, and have the
+	 * Exporter write each band out before the next is created
+	 * @param export - StreamingExporter for the selected format
+	 * @param filename - name of output file
+	 * @return whether or not the export was successful
+	 */
+	protected boolean export(StreamingExporter exporter, String filename) {
+		ExportEngine e = new ExportEngine(map, box_x, box_y, box_width, box_height);
+		
+		// set (and remember) the tile size
+		int meters = Integer.parseInt(sel_t_size.getText());
+		e.tile_size(meters);
+		parms.dTileSize = meters;
+		
+		return e.export(exporter, filename);
+	}
+	
 
 	/**
 	 * MapListener for region selection changes
@@ -0,0 +1,250 @@
+package worldBuilder;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * a (least recently used) cache of the Cartesian grids built for
+ * exports, and of the per-tile layers computed from them, so that
+ * repeated previews and exports (in different formats) of the same
+ * region do not have to rebuild and re-interpolate them.
+ *
+ * Grids are keyed by Mesh, export box and resolution.  Layers are
+ * keyed by grid, by how they were computed, and by a fingerprint of
+ * the per-MeshPoint values.  Many engines update the Map's arrays in
+ * place, so the fingerprint (rather than the array) is the version
+ * of a layer, and any change to a map causes it to be recomputed.
+ *
+ * The cache is bounded by the total size (in bytes) of the grids and
+ * layers it holds (rather than by their number), and is cleared when
+ * the Map's Mesh is replaced.
+ *
+ * Note: cached layers are shared, and must not be modified by callers.
+ */
+public class ExportCache {
+
+	private static final int MAX_GRIDS = 3;		// cached Cartesian grids
+	private static final int MAX_LAYERS = 16;	// cached per-tile layers
+	private static final long MAX_BYTES = 128L << 20;	// total cached bytes
+
+	// ways in which a layer can be computed from a grid
+	private static final int INTERPOLATED = 0;
+	private static final int NEAREST = 1;
+	private static final int NEAREST_VALID = 2;
+
+	private static LinkedHashMap<Key, Cartesian> grids = new LinkedHashMap<Key, Cartesian>(16, 0.75f, true);
+	private static LinkedHashMap<Key, double[][]> layers = new LinkedHashMap<Key, double[][]>(16, 0.75f, true);
+	private static long bytes = 0;		// total size of cached grids and layers
+
+	/**
+	 * a grid or layer cache key
+	 *	(the source Mesh or grid is compared by identity)
+	 */
+	private static class Key {
+		Object source;			// Mesh (for grids) or Cartesian (for layers)
+		double x, y, w, h;		// export box (or invalid value)
+		int cols, rows;			// grid size (or layer method)
+		long version;			// layer fingerprint
+
+		Key(Object source, double x, double y, double w, double h, int cols, int rows, long version) {
+			this.source = source;
+			this.x = x; this.y = y; this.w = w; this.h = h;
+			this.cols = cols; this.rows = rows;
+			this.version = version;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return source == k.source && x == k.x && y == k.y && w == k.w && h == k.h &&
+					cols == k.cols && rows == k.rows && version == k.version;
+		}
+
+		public int hashCode() {
+			long bits = Double.doubleToLongBits(x) ^ (31 * Double.doubleToLongBits(y)) ^
+						Double.doubleToLongBits(w) ^ (31 * Double.doubleToLongBits(h)) ^ version;
+			return System.identityHashCode(source) ^ (int) bits ^ (int) (bits >>> 32) ^
+					(cols * 65599) ^ rows;
+		}
+	}
+
+	/**
+	 * return a (POLYGON vicinity) Cartesian grid for an export region
+	 * @param mesh ... Mesh of Voronoi points
+	 * @param left ... left edge of mapped area
+	 * @param top ... top of mapped area
+	 * @param right ... right edge of mapped area
+	 * @param bottom ... bottom edge of mapped area
+	 * @param width ... width of desired array
+	 * @param height ... height of desired array
+	 * @return (possibly shared) Cartesian grid
+	 */
+	public static synchronized Cartesian grid(Mesh mesh, double left, double top,
+							double right, double bottom, int width, int height) {
+		Key key = new Key(mesh, left, top, right, bottom, width, height, 0);
+		Cartesian cart = grids.get(key);
+		if (cart == null) {
+			cart = new Cartesian(mesh, left, top, right, bottom, width, height, Cartesian.vicinity.POLYGON);
+			long size = size(cart);
+			if (size > MAX_BYTES)
+				return cart;		// too large to be worth keeping
+			grids.put(key, cart);
+			bytes += size;
+			while(grids.size() > MAX_GRIDS)
+				evict(grids.keySet().iterator().next());
+			trim();
+		}
+		return cart;
+	}
+	
+	/**
+	 * discard all cached grids and layers
+	 *	(e.g. because the Mesh they were computed from has been replaced)
+	 */
+	public static synchronized void clear() {
+		grids.clear();
+		layers.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * interpolated values for every cell of a grid
+	 * @param cart ... Cartesian grid
+	 * @param values ... arrays of per-MeshPoint values
+	 * @return Cartesian arrays of interpolated values (one per array)
+	 */
+	public static synchronized double[][][] interpolate(Cartesian cart, double[][] values) {
+		double[][][] results = new double[values.length][][];
+		Key[] keys = new Key[values.length];
+
+		// find the layers we already have
+		int missing = 0;
+		for(int l = 0; l < values.length; l++) {
+			keys[l] = new Key(cart, 0, 0, 0, 0, INTERPOLATED, values[l].length, fingerprint(values[l]));
+			results[l] = layers.get(keys[l]);
+			if (results[l] == null)
+				missing++;
+		}
+
+		// and interpolate the rest in a single pass
+		if (missing > 0) {
+			double[][] needed = new double[missing][];
+			int[] which = new int[missing];
+			missing = 0;
+			for(int l = 0; l < values.length; l++)
+				if (results[l] == null) {
+					which[missing] = l;
+					needed[missing++] = values[l];
+				}
+			double[][][] computed = cart.interpolate(needed, null);
+			for(int m = 0; m < missing; m++) {
+				results[which[m]] = computed[m];
+				remember(keys[which[m]], computed[m]);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * nearest MeshPoint value for every cell of a grid
+	 * @param cart ... Cartesian grid
+	 * @param values ... per-MeshPoint values
+	 * @return Cartesian array of per-tile values
+	 */
+	public static synchronized double[][] nearest(Cartesian cart, double[] values) {
+		Key key = new Key(cart, 0, 0, 0, 0, NEAREST, values.length, fingerprint(values));
+		double[][] result = layers.get(key);
+		if (result == null) {
+			result = cart.nearest(values);
+			remember(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * nearest MeshPoint (with a valid value) for every cell of a grid
+	 * @param cart ... Cartesian grid
+	 * @param values ... per-MeshPoint values
+	 * @param invalid ... the value to be ignored
+	 * @return Cartesian array of per-tile values (or invalid)
+	 */
+	public static synchronized double[][] nearestValid(Cartesian cart, double[] values, double invalid) {
+		Key key = new Key(cart, invalid, 0, 0, 0, NEAREST_VALID, values.length, fingerprint(values));
+		double[][] result = layers.get(key);
+		if (result == null) {
+			result = cart.nearestValid(values, invalid);
+			remember(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * a (64-bit) fingerprint of a set of per-MeshPoint values
+	 * @param values ... per-MeshPoint values
+	 * @return hash of all of those values
+	 */
+	public static long fingerprint(double[] values) {
+		long hash = values.length;
+		for(int i = 0; i < values.length; i++) {
+			hash = (hash ^ Double.doubleToLongBits(values[i])) * 0x100000001B3L;
+			hash ^= hash >>> 29;
+		}
+		return hash;
+	}
+
+	/**
+	 * add a layer to the cache, discarding the least recently used
+	 */
+	private static void remember(Key key, double[][] layer) {
+		long size = size(layer);
+		if (size > MAX_BYTES || !grids.containsValue(key.source))
+			return;		// too large to keep (or from an uncached grid)
+		double[][] old = layers.put(key, layer);
+		bytes += size - ((old == null) ? 0 : size(old));
+		while(layers.size() > MAX_LAYERS)
+			bytes -= size(layers.remove(layers.keySet().iterator().next()));
+		trim();
+	}
+
+	/**
+	 * discard least recently used layers (and then grids) until
+	 * the cache is back within its size limit
+	 */
+	private static void trim() {
+		while(bytes > MAX_BYTES && layers.size() > 0)
+			bytes -= size(layers.remove(layers.keySet().iterator().next()));
+		while(bytes > MAX_BYTES && grids.size() > 0)
+			evict(grids.keySet().iterator().next());
+	}
+
+	/**
+	 * discard a grid, and all of the layers computed from it
+	 */
+	private static void evict(Key key) {
+		Cartesian cart = grids.remove(key);
+		bytes -= size(cart);
+		for(Iterator<Entry<Key, double[][]>> it = layers.entrySet().iterator(); it.hasNext(); ) {
+			Entry<Key, double[][]> e = it.next();
+			if (e.getKey().source == cart) {
+				bytes -= size(e.getValue());
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return (approximate) size (in bytes) of a grid's neighbors, weights and distances
+	 */
+	private static long size(Cartesian cart) {
+		return (long) cart.neighbors.length * (4 + 8 + 8);
+	}
+
+	/**
+	 * @return (approximate) size (in bytes) of a per-tile layer
+	 */
+	private static long size(double[][] layer) {
+		return (long) layer.length * ((layer.length > 0) ? layer[0].length : 0) * 8;
+	}
+}
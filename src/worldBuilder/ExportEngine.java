@@ -22,6 +22,9 @@ public class ExportEngine {
 	
 	protected static final int EXPORT_DEBUG = 2;
 	
+	/** rows per band in a streaming export	*/
+	public static final int BAND_ROWS = 64;
+	
 	//private static final long serialVersionUID = 1L;
 	
 	/**
@@ -85,64 +88,166 @@ public class ExportEngine {
 	 *  - tile size (number of tiles) changes
 	 */
 	protected void export(Exporter exporter) {
-		// get the export region size
-		x_points = exporter.export_width();
-		y_points = exporter.export_height();
-
-		// tell the exporter the new tilesize
-		exporter.tileSize(tile_size);
-		
-		// export the temperature range
-		exporter.temps(parms.meanTemp(), parms.meanSummer(), parms.meanWinter());
-		
-		double lat = parms.latitude(box_y + box_height/2);
-		double lon = parms.longitude(box_x + box_width/2);
-		exporter.position(lat, lon);
+		describe(exporter);
 
 		// get Cartesian interpolations of tile characteristics
-		Cartesian cart = new Cartesian(map.getMesh(), 
+		//	(which are shared with other exports of the same region)
+		Cartesian cart = ExportCache.grid(map.getMesh(), 
 										box_x, box_y, box_x+box_width, box_y+box_height,
-										x_points, y_points, Cartesian.vicinity.POLYGON);
+										x_points, y_points);
 		
 		// figure out which maps we need to up-load
 		int needed = exporter.neededInfo();
-		double heights[][] = cart.interpolate(map.getHeightMap());
+		
+		// interpolate all of the continuous maps in a single pass
+		boolean rain = (needed & Exporter.RAINFALL) != 0;
+		double[][] layers = rain ?
+				new double[][] {map.getHeightMap(), map.getErodeMap(), map.getRainMap()} :
+				new double[][] {map.getHeightMap(), map.getErodeMap()};
+		double[][][] tiles = ExportCache.interpolate(cart, layers);
+		
+		double heights[][] = tiles[0];
 		exporter.heightMap(heights);
 		
-		double erosion[][] = cart.interpolate(map.getErodeMap());
+		double erosion[][] = tiles[1];
 		if ((needed & Exporter.EROSION) != 0)
 			exporter.erodeMap(erosion);
 		
 		// unclassified soil with sedimentation is alluvial
 		if ((needed & Exporter.MINERALS) != 0) {
 			int alluvial = map.getSoilType("Alluvial");
-			double soil[][] = cart.nearest(map.getSoilMap());
-			for(int i = 0; i < soil.length; i++)
+			double nearest[][] = ExportCache.nearest(cart, map.getSoilMap());
+			double soil[][] = new double[nearest.length][];
+			for(int i = 0; i < soil.length; i++) {
+				soil[i] = nearest[i].clone();	// (the cached copy is shared)
 				for(int j = 0; j < soil[0].length; j++)
 					if (soil[i][j] == 0 && erosion[i][j] < 0)
 						soil[i][j] = alluvial;
+			}
 			exporter.soilMap(soil, map.rockNames);
 		}
 		
 		// per-tile water depth must be computed
 		double[] waterLevel = map.getWaterLevel();
+		double waters[][] = ExportCache.nearestValid(cart, waterLevel, WaterFlow.UNKNOWN);
 		double depth[][] = new double[y_points][x_points];
 		for(int i = 0; i < y_points; i++)
 			for(int j = 0; j < x_points; j++) {
-				double water = cart.cells[i][j].nearestValid(waterLevel, WaterFlow.UNKNOWN);
+				double water = waters[i][j];
 				double height = heights[i][j] - erosion[i][j];
 				if (water > height)
 					depth[i][j] = water - height;
 			}
-		add_rivers(depth, tile_size);
+		add_rivers(depth, tile_size, 0);
 		exporter.waterMap(depth);
 		
-		if ((needed & Exporter.RAINFALL) != 0)
-			exporter.rainMap(cart.interpolate(map.getRainMap()));
+		if (rain)
+			exporter.rainMap(tiles[2]);
 		if ((needed & Exporter.FLORA) != 0)
-			exporter.floraMap(cart.nearest(map.getFloraMap()), map.floraNames);
+			exporter.floraMap(ExportCache.nearest(cart, map.getFloraMap()), map.floraNames);
 		if ((needed & Exporter.FAUNA) != 0)
-			exporter.faunaMap(cart.nearest(map.getFaunaMap()), map.faunaNames);
+			exporter.faunaMap(ExportCache.nearest(cart, map.getFaunaMap()), map.faunaNames);
+	}
+	
+	/**
+	 * create the per-tile maps one band of rows at a time, passing
+	 * each band to the Exporter to be written out before the next
+	 * one is created (so that very large exports never have to be
+	 * held in memory all at once)
+	 * 
+	 * @param exporter ... StreamingExporter for the selected format
+	 * @param filename ... name of output file
+	 * @return whether or not the export was successful
+	 * 
+	 * Note: the bands are identical to the corresponding rows of the
+	 *		 maps created by export(), but they are neither cached nor
+	 *		 shared, and the exporter must consume each band before the
+	 *		 next one is up-loaded (as the arrays are re-used).
+	 */
+	protected boolean export(StreamingExporter exporter, String filename) {
+		describe(exporter);
+		if (!exporter.startFile(filename))
+			return false;
+		
+		// figure out which maps we need to up-load
+		int needed = exporter.neededInfo();
+		boolean rain = (needed & Exporter.RAINFALL) != 0;
+		double[][] layers = rain ?
+				new double[][] {map.getHeightMap(), map.getErodeMap(), map.getRainMap()} :
+				new double[][] {map.getHeightMap(), map.getErodeMap()};
+		double[][][] tiles = null;
+		int alluvial = map.getSoilType("Alluvial");
+		double[] waterLevel = map.getWaterLevel();
+		
+		for(int first = 0; first < y_points; first += BAND_ROWS) {
+			int rows = Math.min(BAND_ROWS, y_points - first);
+			Cartesian cart = new Cartesian(map.getMesh(),
+										box_x, box_y, box_x+box_width, box_y+box_height,
+										x_points, y_points, Cartesian.vicinity.POLYGON,
+										first, rows);
+			
+			// interpolate the continuous maps (into last band's arrays)
+			tiles = cart.interpolate(layers, tiles);
+			double heights[][] = tiles[0];
+			exporter.heightMap(heights);
+			
+			double erosion[][] = tiles[1];
+			if ((needed & Exporter.EROSION) != 0)
+				exporter.erodeMap(erosion);
+			
+			// unclassified soil with sedimentation is alluvial
+			if ((needed & Exporter.MINERALS) != 0) {
+				double soil[][] = cart.nearest(map.getSoilMap());
+				for(int i = 0; i < rows; i++)
+					for(int j = 0; j < x_points; j++)
+						if (soil[i][j] == 0 && erosion[i][j] < 0)
+							soil[i][j] = alluvial;
+				exporter.soilMap(soil, map.rockNames);
+			}
+			
+			// per-tile water depth (and the rivers that cross this band)
+			double depth[][] = cart.nearestValid(waterLevel, WaterFlow.UNKNOWN);
+			for(int i = 0; i < rows; i++)
+				for(int j = 0; j < x_points; j++) {
+					double water = depth[i][j];
+					double height = heights[i][j] - erosion[i][j];
+					depth[i][j] = (water > height) ? water - height : 0;
+				}
+			add_rivers(depth, tile_size, first);
+			exporter.waterMap(depth);
+			
+			if (rain)
+				exporter.rainMap(tiles[2]);
+			if ((needed & Exporter.FLORA) != 0)
+				exporter.floraMap(cart.nearest(map.getFloraMap()), map.floraNames);
+			if ((needed & Exporter.FAUNA) != 0)
+				exporter.faunaMap(cart.nearest(map.getFaunaMap()), map.faunaNames);
+			
+			if (!exporter.writeBand(first, rows))
+				return false;
+		}
+		
+		return exporter.endFile();
+	}
+	
+	/**
+	 * pass the export size, tile size, temperatures and position
+	 * to the Exporter
+	 */
+	private void describe(Exporter exporter) {
+		// get the export region size
+		x_points = exporter.export_width();
+		y_points = exporter.export_height();
+
+		// tell the exporter the new tilesize
+		exporter.tileSize(tile_size);
+		
+		// export the temperature range
+		exporter.temps(parms.meanTemp(), parms.meanSummer(), parms.meanWinter());
+		
+		double lat = parms.latitude(box_y + box_height/2);
+		double lon = parms.longitude(box_x + box_width/2);
+		exporter.position(lat, lon);
 	}
 	
 	/**
@@ -152,10 +257,12 @@ public class ExportEngine {
 	 * 		the maps because a river is not distributed over the
 	 * 		entire MeshPoint, but only in specific tiles.
 	 * 
-	 * @param	depths (cartesian map to update)
+	 * @param	depths (cartesian map (or band of rows) to update)
 	 * @param 	tilesize (in meters)
+	 * @param	firstRow (export row of the first row in depths)
 	 */
-	protected void add_rivers(double[][] depths, int tilesize) {
+	protected void add_rivers(double[][] depths, int tilesize, int firstRow) {
+		int lastRow = firstRow + depths.length;
 		
 		Mesh mesh = map.getMesh();
 		double[] fluxMap = map.getFluxMap();
@@ -220,6 +327,10 @@ public class ExportEngine {
 			int c = box_col(x0);
 			int cDest = box_col(x1);
 			
+			// ignore flows that never reach these rows
+			if (Math.max(r, rDest) + stroke < firstRow || Math.min(r, rDest) - stroke >= lastRow)
+				continue;
+			
 			// figure out how far we have to go
 			int drawn = 0;
 			int dR = rDest - r;
@@ -230,12 +341,13 @@ public class ExportEngine {
 				// figure out which direction we want to move in
 				if (Math.abs(dR) > Math.abs(dC)) { // vertical flow
 					int start = c - (stroke/2);
-					if (r >= 0 && r < y_points && start >= 0 && start + stroke <= x_points) {
+					if (r >= firstRow && r < lastRow && start >= 0 && start + stroke <= x_points) {
+						double[] row = depths[r - firstRow];
 						for(int j = 0; j < stroke; j++)
-							if (depths[r][start + j] < deltaZ)
-								depths[r][start + j] = deltaZ;
+							if (row[start + j] < deltaZ)
+								row[start + j] = deltaZ;
 							else	// already deep water gets deeper
-								depths[r][start+j] += deltaZ;
+								row[start+j] += deltaZ;
 					}
 					// move on to the next row
 					r += (dR>0) ? 1 : -1;
@@ -243,11 +355,15 @@ public class ExportEngine {
 				} else {	// horizontal flow or last stroke
 					int start = r - (stroke/2);
 					if (c >= 0 && c < x_points && start >= 0 && start + stroke <= y_points) {
-						for(int j = 0; j < stroke; j++)
-							if (depths[start + j][c] < deltaZ)
-								depths[start + j][c] = deltaZ;
+						for(int j = 0; j < stroke; j++) {
+							int row = start + j;
+							if (row < firstRow || row >= lastRow)
+								continue;	// not in this band
+							if (depths[row - firstRow][c] < deltaZ)
+								depths[row - firstRow][c] = deltaZ;
 							else	// already deep water gets deeper
-								depths[start + j][c] += deltaZ;
+								depths[row - firstRow][c] += deltaZ;
+						}
 					}
 					// move on to the next column
 					if (dC != 0) {
@@ -0,0 +1,224 @@
+package worldBuilder;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * a buffered Writer that can append integers and fixed-precision
+ * doubles directly into its (re-used) character buffer, rather than
+ * formatting (and allocating) a new String for every number.
+ *
+ * The output is exactly what String.format (in Locale.ROOT, so that
+ * the decimal point is always '.') would produce for "%d", "%<width>d"
+ * and "%.<places>f".  Java rounds the shortest decimal
+ * representation of a double (half-up), rather than its exact binary
+ * value.  These only differ when a value is (within a few ulps of) half
+ * way between two outputs, and in those (rare) cases, and for values
+ * too large to scale exactly, we fall back to String.format.
+ */
+public class FastWriter extends Writer {
+
+	private Writer out;			// where full buffers are written
+	private char[] buf;			// characters not yet written
+	private int used;			// number of characters in buf
+
+	private static final int BUFSIZE = 16384;
+	private static final int MAX_NUMBER = 64;	// longest number we append
+	private static final int MAX_PLACES = 15;	// most decimal places we scale
+	private static final double MAX_SCALED = 1e15;	// largest exact scaled value
+
+	private static final long[] POWERS = new long[MAX_PLACES + 1];
+	static {
+		POWERS[0] = 1;
+		for(int i = 1; i <= MAX_PLACES; i++)
+			POWERS[i] = 10 * POWERS[i - 1];
+	}
+
+	/**
+	 * create a buffered writer for a file
+	 * @param filename ... name of the file to be (re)written
+	 */
+	public FastWriter(String filename) throws IOException {
+		this(new FileWriter(filename));
+	}
+
+	/**
+	 * create a buffered writer on top of another writer
+	 * @param out ... Writer to which buffers will be written
+	 */
+	public FastWriter(Writer out) {
+		this.out = out;
+		buf = new char[BUFSIZE];
+		used = 0;
+	}
+
+	/**
+	 * append a string
+	 * @param s ... string to be written
+	 */
+	public void write(String s) throws IOException {
+		int len = s.length();
+		if (len > BUFSIZE - used) {
+			flushBuffer();
+			if (len > BUFSIZE) {
+				out.write(s);
+				return;
+			}
+		}
+		s.getChars(0, len, buf, used);
+		used += len;
+	}
+
+	/**
+	 * append a single character
+	 * @param c ... character to be written
+	 */
+	public void write(int c) throws IOException {
+		if (used >= BUFSIZE)
+			flushBuffer();
+		buf[used++] = (char) c;
+	}
+
+	/**
+	 * append a range of characters
+	 * @param cbuf ... characters to be written
+	 * @param off ... index of first character
+	 * @param len ... number of characters
+	 */
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		if (len > BUFSIZE - used) {
+			flushBuffer();
+			if (len > BUFSIZE) {
+				out.write(cbuf, off, len);
+				return;
+			}
+		}
+		System.arraycopy(cbuf, off, buf, used, len);
+		used += len;
+	}
+
+	/**
+	 * append an integer (as "%d")
+	 * @param value ... integer to be written
+	 */
+	public void print(long value) throws IOException {
+		print(value, 0);
+	}
+
+	/**
+	 * append an integer, right justified (as "%<width>d")
+	 * @param value ... integer to be written
+	 * @param width ... minimum number of characters
+	 */
+	public void print(long value, int width) throws IOException {
+		if (value == Long.MIN_VALUE) {	// cannot be negated
+			write(String.format(Locale.ROOT, "%" + (width > 0 ? width : "") + "d", value));
+			return;
+		}
+		boolean negative = value < 0;
+		int digits = digits(negative ? -value : value);
+		for(int i = digits + (negative ? 1 : 0); i < width; i++)
+			write(' ');
+		room();
+		if (negative)
+			buf[used++] = '-';
+		append(negative ? -value : value, digits);
+	}
+
+	/**
+	 * append a double with a fixed number of decimal places (as "%.<places>f")
+	 * @param value ... number to be written
+	 * @param places ... number of digits after the decimal point
+	 */
+	public void print(double value, int places) throws IOException {
+		// figure out whether or not we can scale and round it exactly
+		double magnitude = Math.abs(value);
+		double scaled = (places <= MAX_PLACES) ? magnitude * POWERS[places] : MAX_SCALED;
+		if (!(scaled < MAX_SCALED)) {	// (including NaN and infinities)
+			write(String.format(Locale.ROOT, "%." + places + "f", value));
+			return;
+		}
+		long whole = (long) scaled;
+		double fraction = scaled - whole;
+		double tolerance = 16 * Math.ulp(scaled);
+		if (fraction > 0.5 + tolerance)
+			whole++;
+		else if (fraction >= 0.5 - tolerance) {	// too close to call
+			write(String.format(Locale.ROOT, "%." + places + "f", value));
+			return;
+		}
+
+		// sign, integer part, decimal point and fraction
+		room();
+		if (value < 0 || (value == 0 && 1/value < 0))
+			buf[used++] = '-';
+		long integer = whole / POWERS[places];
+		append(integer, digits(integer));
+		if (places > 0) {
+			buf[used++] = '.';
+			append(whole - (integer * POWERS[places]), places);
+		}
+	}
+
+	/**
+	 * write out any buffered characters
+	 */
+	public void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * write out any buffered characters and close the underlying writer
+	 */
+	public void close() throws IOException {
+		flushBuffer();
+		out.close();
+	}
+
+	/**
+	 * make sure there is room in the buffer for a number
+	 */
+	private void room() throws IOException {
+		if (BUFSIZE - used < MAX_NUMBER)
+			flushBuffer();
+	}
+
+	/**
+	 * write the buffered characters to the underlying writer
+	 */
+	private void flushBuffer() throws IOException {
+		if (used > 0) {
+			out.write(buf, 0, used);
+			used = 0;
+		}
+	}
+
+	/**
+	 * @param value ... non-negative integer
+	 * @return number of decimal digits in that integer
+	 */
+	private static int digits(long value) {
+		int digits = 1;
+		while(value >= 10) {
+			value /= 10;
+			digits++;
+		}
+		return digits;
+	}
+
+	/**
+	 * append the low order digits of a non-negative integer
+	 * @param value ... non-negative integer
+	 * @param digits ... number of digits (with leading zeroes)
+	 */
+	private void append(long value, int digits) {
+		for(int i = used + digits - 1; i >= used; i--) {
+			buf[i] = (char) ('0' + (value % 10));
+			value /= 10;
+		}
+		used += digits;
+	}
+}
@@ -1,5 +1,7 @@
 package worldBuilder;
 
+import java.util.Arrays;
+
 /**
  * These nodes are used to define territory and trade routes.
  *  - A border is the line, between two cities, where the cost of
@@ -15,7 +17,7 @@ public class Journey {
 	public double cost;	// cost of traveling from city
 	public Journey route;// path back to owning city
 	
-	protected Journey next;	// link in NextSteps queue
+	protected int slot;		// position in NextSteps queue (or -1)
 	
 	/**
 	 * create a node for the next step in an outward journey
@@ -27,31 +29,51 @@ public class Journey {
 		this.index = index;
 		this.city = fromCity;
 		this.route = fromPoint;
-		this.next = null;
+		this.slot = -1;
 	}
 	
 	/**
 	 * this is a (lowest) cost-ordered queue of possible next steps
 	 * in our outward journeys.  Processing steps in this order
 	 * enables us to find the lowest cost routes and crossings.  
+	 *
+	 * The queue is an (indexed) binary min-heap, kept in arrays, so
+	 * that adding and removing steps is O(log n) rather than a walk
+	 * through a sorted list.  Steps with equal costs come out in the
+	 * order in which they were added (as they did from the list).
 	 */
 	public class NextSteps {
-		Journey lowest;		// first (lowest cost) step in queue
+		private static final int INITIAL_SIZE = 256;
+		
+		private Journey[] heap;		// step in each heap slot
+		private double[] costs;		// cost of each heap slot
+		private long[] seqs;		// sequence number of each heap slot
+		private int size;			// number of steps in the queue
+		private long sequence;		// next sequence number
 		
 		public NextSteps() {
-			lowest = null;
+			heap = new Journey[INITIAL_SIZE];
+			costs = new double[INITIAL_SIZE];
+			seqs = new long[INITIAL_SIZE];
+			size = 0;
+			sequence = 0;
 		}
 		
 		/**
 		 * @return the next (lowest cost) Journey step from the queue
 		 */
 		public Journey next() {
-			if (this.lowest == null)
+			if (size == 0)
 				return null;
 			
-			Journey ret = lowest;
-			lowest = ret.next;
-			ret.next = null;
+			Journey ret = heap[0];
+			ret.slot = -1;
+			size--;
+			if (size > 0) {
+				move(size, 0);
+				down(0);
+			}
+			heap[size] = null;
 			return ret;
 		}
 		
@@ -60,16 +82,96 @@ public class Journey {
 		 * @param step	Journey to be added to the queue
 		 */
 		public void add(Journey step) {
-			// should this be the first thing on the queue?
-			if (this.lowest == null || step.cost < lowest.cost) {
-				step.next = lowest;
-				lowest = step;
-			} else {	// find the point in front of which we should insert
-				Journey prev = lowest;
-				while(prev.next != null && prev.next.cost <= step.cost)
-					prev = prev.next;
-				step.next = prev.next;
-				prev.next = step;
+			if (size == heap.length)
+				grow();
+			int s = size++;
+			heap[s] = step;
+			costs[s] = step.cost;
+			seqs[s] = sequence++;
+			step.slot = s;
+			up(s);
+		}
+		
+		/**
+		 * lower the cost of a step that is already in the queue
+		 * @param step	Journey (in the queue) to be updated
+		 * @param cost	new (lower) cost for that step
+		 */
+		public void decrease(Journey step, double cost) {
+			step.cost = cost;
+			int s = step.slot;
+			costs[s] = cost;
+			seqs[s] = sequence++;
+			up(s);
+		}
+		
+		/**
+		 * double the size of the heap arrays
+		 */
+		private void grow() {
+			int len = 2 * heap.length;
+			heap = Arrays.copyOf(heap, len);
+			costs = Arrays.copyOf(costs, len);
+			seqs = Arrays.copyOf(seqs, len);
+		}
+		
+		/**
+		 * does heap slot a belong before heap slot b
+		 */
+		private boolean before(int a, int b) {
+			if (costs[a] != costs[b])
+				return costs[a] < costs[b];
+			return seqs[a] < seqs[b];
+		}
+		
+		/**
+		 * copy the contents of one heap slot to another
+		 */
+		private void move(int from, int to) {
+			heap[to] = heap[from];
+			costs[to] = costs[from];
+			seqs[to] = seqs[from];
+			heap[to].slot = to;
+		}
+		
+		/**
+		 * exchange the contents of two heap slots
+		 */
+		private void swap(int a, int b) {
+			Journey j = heap[a]; heap[a] = heap[b]; heap[b] = j;
+			double c = costs[a]; costs[a] = costs[b]; costs[b] = c;
+			long q = seqs[a]; seqs[a] = seqs[b]; seqs[b] = q;
+			heap[a].slot = a;
+			heap[b].slot = b;
+		}
+		
+		/**
+		 * move a slot up until its parent is not after it
+		 */
+		private void up(int s) {
+			while(s > 0) {
+				int parent = (s - 1) / 2;
+				if (!before(s, parent))
+					break;
+				swap(s, parent);
+				s = parent;
+			}
+		}
+		
+		/**
+		 * move a slot down until neither child is before it
+		 */
+		private void down(int s) {
+			while(true) {
+				int child = (2 * s) + 1;
+				if (child >= size)
+					break;
+				if (child + 1 < size && before(child + 1, child))
+					child++;
+				if (!before(child, s))
+					break;
+				swap(s, child);
+				s = child;
 			}
 		}
 	}
@@ -1,13 +1,12 @@
 package worldBuilder;
 
 import java.awt.Color;
-import java.io.FileWriter;
 import java.io.IOException;
 
 /**
  * Exporter to render a Cartesian map w/JSON descriptions of each point.
  */
-public class JsonExporter implements Exporter {	
+public class JsonExporter implements StreamingExporter {	
 
 	private Parameters parms;
 	
@@ -38,6 +37,23 @@ public class JsonExporter implements Exporter {
 	private double minHeight;		// lowest discovered altitude
 	private double maxDepth;		// deepest discovered water
 	
+	private FastWriter output;		// file being written
+	private String filename;		// name of that file
+	private boolean firstPoint;		// no points have yet been written
+	
+	// output formats
+	private static final String FORMAT_S = " \"%s\": \"%s\"";
+	private static final String FORMAT_D = " \"%s\": %d";
+	private static final String FORMAT_DM = " \"%s\": \"%dm\"";
+	//private static final String FORMAT_DP = " \"%s\": %.3fm";
+	private static final String FORMAT_L = " \"%s\": %.6f";
+	private static final String FORMAT_O = " \"%s\": {";
+	private static final String FORMAT_A = " \"%s\": [";
+	private static final String FORMAT_T = " \"%s\": \"%.1fC\"";
+	private static final String NEW_POINT = "\n        { ";
+	private static final String NEWLINE = "\n    ";
+	private static final String COMMA = ", ";
+	
 	// brightness constants for preview colors
 	private static final int DIM = 32;
 	private static final int BRIGHT = 256 - DIM;
@@ -205,6 +221,17 @@ public class JsonExporter implements Exporter {
 	 * @param filename - name of output file
 	 */
 	public boolean writeFile( String filename ) {
+		return startFile(filename) && writeBand(0, y_points) && endFile();
+	}
+	
+	/**
+	 * Begin writing an export (the grid wrapper, up to the points)
+	 * 
+	 * @param filename - name of output file
+	 */
+	public boolean startFile( String filename ) {
+		this.filename = filename;
+		
 		// strip off suffix and leading directories to get base name
 		int dot = filename.lastIndexOf('.');
 		String mapname = (dot == -1) ? filename : filename.substring(0, dot);
@@ -216,20 +243,7 @@ public class JsonExporter implements Exporter {
 			
 		// generate the output
 		try {
-			FileWriter output = new FileWriter(filename);
-			final String FORMAT_S = " \"%s\": \"%s\"";
-			final String FORMAT_D = " \"%s\": %d";
-			final String FORMAT_DM = " \"%s\": \"%dm\"";
-			//final String FORMAT_DP = " \"%s\": %.3fm";
-			final String FORMAT_FM = " \"%s\": \"%.3fm\"";
-			final String FORMAT_CM = " \"%s\": \"%.0fcm/y\"";
-			final String FORMAT_L = " \"%s\": %.6f";
-			final String FORMAT_O = " \"%s\": {";
-			final String FORMAT_A = " \"%s\": [";
-			final String FORMAT_T = " \"%s\": \"%.1fC\"";
-			final String NEW_POINT = "\n        { ";
-			final String NEWLINE = "\n    ";
-			final String COMMA = ", ";
+			output = new FastWriter(filename);
 			
 			// write out the grid wrapper
 			output.write("{");
@@ -262,34 +276,49 @@ public class JsonExporter implements Exporter {
 			output.write(NEWLINE);
 			
 			output.write(String.format(FORMAT_A, "points"));
-			
-			boolean first = true;
-			for(int r = 0; r < y_points; r++) {
+			firstPoint = true;
+			return true;
+		} catch (IOException e) {
+			return failed();
+		}
+	}
+	
+	/**
+	 * Write out the points in the up-loaded rows
+	 * 
+	 * @param firstRow - export row of the first up-loaded row
+	 * @param rows - number of up-loaded rows
+	 */
+	public boolean writeBand(int firstRow, int rows) {
+		try {
+			for(int r = 0; r < rows; r++) {
 				for(int c = 0; c < x_points; c++) {
-					if (first)
-						first = false;
+					if (firstPoint)
+						firstPoint = false;
 					else
 						output.write(",");
 					output.write(NEW_POINT);
 					
 					double z = heights[r][c]-erode[r][c];
-					output.write(String.format(FORMAT_FM, "altitude", parms.altitude(z)));
+					writeMeters("altitude", parms.altitude(z));
 					
 					if (erode[r][c] != 0) {	// only if > 1cm
 						double dz = parms.height(erode[r][c]);
 						if (dz > 0.01 || dz < -0.01) {
 							output.write(COMMA);
-							output.write(String.format(FORMAT_FM, "erosion", parms.height(erode[r][c])));
+							writeMeters("erosion", parms.height(erode[r][c]));
 						}
 					}
 					if (rain[r][c] > 0) {
 						output.write(COMMA);
-						output.write(String.format(FORMAT_CM, "rainfall", rain[r][c]));
+						output.write(" \"rainfall\": \"");
+						output.print(rain[r][c], 0);
+						output.write("cm/y\"");
 					}
 					
 					if (depths[r][c] > 0) {
 						output.write(COMMA);
-						output.write(String.format(FORMAT_FM, "depth", parms.height(depths[r][c])));
+						writeMeters("depth", parms.height(depths[r][c]));
 					}
 					
 					int st = (int) soil[r][c];
@@ -297,28 +326,40 @@ public class JsonExporter implements Exporter {
 						st = ALLUVIAL;		// sedimentation is automaticaly alluvial
 					if (st > 0 && rockNames[st] != null) {
 						output.write(COMMA);
-						output.write(String.format(FORMAT_S, "soil", rockNames[st]));
+						writeName("soil", rockNames[st]);
 					}
 					
 					int f = (int) flora[r][c];
 					if (f > 0) {
 						output.write(COMMA);
-						output.write(String.format(FORMAT_S, "flora", floraNames[f]));
+						writeName("flora", floraNames[f]);
 					}
 					
 					f = (int) fauna[r][c];
 					if (f > 0) {
 						output.write(COMMA);
-						output.write(String.format(FORMAT_S, "fauna", faunaNames[f]));
+						writeName("fauna", faunaNames[f]);
 					}
 
 					output.write(" }");
 				}
 			}
+			return true;
+		} catch (IOException e) {
+			return failed();
+		}
+	}
+	
+	/**
+	 * Finish (and close) the export
+	 */
+	public boolean endFile() {
+		try {
 			output.write(NEWLINE);
 			output.write("]\n");	// end of points
 			output.write( "}\n");	// end of grid
 			output.close();
+			output = null;
 			
 			if (parms.debug_level > 0) {
 				System.out.println("Exported(Raw Json) "  + x_points + "x" + y_points + " " + tile_size
@@ -327,11 +368,51 @@ public class JsonExporter implements Exporter {
 			}
 			return true;
 		} catch (IOException e) {
-			System.err.println("Unable to export map to file " + filename);
-			return false;
+			return failed();
 		}
 	}
 	
+	/**
+	 * write out a (\"%.3fm\") length attribute of a point
+	 * @param attribute - name of the attribute
+	 * @param meters - value of the attribute
+	 */
+	private void writeMeters(String attribute, double meters) throws IOException {
+		output.write(" \"");
+		output.write(attribute);
+		output.write("\": \"");
+		output.print(meters, 3);
+		output.write("m\"");
+	}
+	
+	/**
+	 * write out a (quoted string) attribute of a point
+	 * @param attribute - name of the attribute
+	 * @param value - value of the attribute
+	 */
+	private void writeName(String attribute, String value) throws IOException {
+		output.write(" \"");
+		output.write(attribute);
+		output.write("\": \"");
+		output.write(String.valueOf(value));	// (as %s, null is "null")
+		output.write("\"");
+	}
+	
+	/**
+	 * report (and clean up after) a failed write
+	 */
+	private boolean failed() {
+		System.err.println("Unable to export map to file " + filename);
+		if (output != null)
+			try {
+				output.close();
+			} catch (IOException e) {
+				// we have already reported the failure
+			}
+		output = null;
+		return false;
+	}
+	
 	/**
 	 * generate a preview of the currently up-loaded export
 	 * @param chosen map type (e.g. height, flora)
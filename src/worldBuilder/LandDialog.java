@@ -42,7 +42,7 @@ public class LandDialog extends JFrame implements ActionListener, ChangeListener
 		// pick up references current maps
 		this.map = map;
 		this.window = map.window;
-		this.t = new TerrainEngine(map);
+		this.t = new TerrainEngine(map, true);
 		
 		// create the dialog box
 		Container mainPane = getContentPane();
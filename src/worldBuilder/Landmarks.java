@@ -0,0 +1,170 @@
+package worldBuilder;
+
+/**
+ * travel costs to and from a few (widely separated) landmark points,
+ * which give (ALT) lower bounds on the cost of any route:
+ *
+ *		cost(x,t) &gt;= cost(L,t) - cost(L,x)
+ *		cost(x,t) &gt;= cost(x,L) - cost(t,L)
+ *
+ * Routes may pass only through passable points, but may end at any
+ * point.  So impassable points are reached, but never left, when we
+ * compute the landmark costs (and have no costs to a landmark).
+ */
+public class Landmarks {
+
+	private static final double NONE = Double.POSITIVE_INFINITY;
+
+	private TravelGraph graph;	// graph over which costs were computed
+	private boolean[] passable;	// which points routes can pass through
+	private int[] reverse;		// index of the reverse of each edge
+	private double[][] from;	// cost from each landmark to every point
+	private double[][] to;		// cost from every point to each landmark
+	private int count;			// number of landmarks
+
+	/**
+	 * choose landmarks and compute the travel costs to and from them
+	 * @param graph ... travel graph (with up-to-date costs)
+	 * @param passable ... per point: can routes pass through it
+	 * @param count ... desired number of landmarks
+	 */
+	public Landmarks(TravelGraph graph, boolean[] passable, int count) {
+		this.graph = graph;
+		this.passable = passable;
+		int n = passable.length;
+
+		// figure out which edge goes the other way
+		reverse = new int[graph.to.length];
+		for(int x = 0; x < n; x++)
+			for(int e = graph.first[x]; e < graph.first[x + 1]; e++)
+				reverse[e] = graph.edge(graph.to[e], x);
+
+		// the first landmark is the point farthest from an arbitrary start
+		int start = -1;
+		for(int x = 0; x < n && start < 0; x++)
+			if (passable[x])
+				start = x;
+		from = new double[count][];
+		to = new double[count][];
+		this.count = 0;
+		if (start < 0)
+			return;
+		PointHeap heap = new PointHeap(n);
+		int next = farthest(outwards(start, heap), null);
+
+		// each subsequent one is the point farthest from all the others
+		double[] nearest = new double[n];
+		for(int x = 0; x < n; x++)
+			nearest[x] = NONE;
+		while(this.count < count && next >= 0) {
+			from[this.count] = outwards(next, heap);
+			to[this.count] = inwards(next, heap);
+			for(int x = 0; x < n; x++)
+				if (from[this.count][x] < nearest[x])
+					nearest[x] = from[this.count][x];
+			this.count++;
+			next = farthest(nearest, nearest);
+		}
+	}
+
+	/**
+	 * @param x ... index of a (passable) point
+	 * @param t ... index of the destination point
+	 * @return lower bound on the cost of traveling from x to t
+	 */
+	public double bound(int x, int t) {
+		double best = 0;
+		for(int i = 0; i < count; i++) {
+			double[] f = from[i];
+			if (f[x] != NONE && f[t] != NONE && f[t] - f[x] > best)
+				best = f[t] - f[x];
+			double[] b = to[i];
+			if (b[x] != NONE && b[t] != NONE && b[x] - b[t] > best)
+				best = b[x] - b[t];
+		}
+		return best;
+	}
+
+	/**
+	 * find the passable point with the highest (finite) cost
+	 * @param costs ... per point costs
+	 * @param exclude ... points with zero cost here are excluded
+	 * @return index of that point (or -1 if none)
+	 */
+	private int farthest(double[] costs, double[] exclude) {
+		int best = -1;
+		for(int x = 0; x < costs.length; x++) {
+			if (!passable[x] || costs[x] == NONE)
+				continue;
+			if (exclude != null && exclude[x] == 0)
+				continue;
+			if (best < 0 || costs[x] > costs[best])
+				best = x;
+		}
+		return best;
+	}
+
+	/**
+	 * compute the cost of traveling from a landmark to every point
+	 * @param landmark ... index of landmark point
+	 * @param heap ... (empty) heap to use for the search
+	 */
+	private double[] outwards(int landmark, PointHeap heap) {
+		double[] cost = newCosts();
+		cost[landmark] = 0;
+		heap.add(landmark, 0);
+		while(!heap.isEmpty()) {
+			double c = heap.minKey();
+			int x = heap.pop();
+			if (!passable[x])
+				continue;	// can be reached, but not left
+			for(int e = graph.first[x]; e < graph.first[x + 1]; e++)
+				relax(heap, cost, graph.to[e], c + graph.cost[e]);
+		}
+		return cost;
+	}
+
+	/**
+	 * compute the cost of traveling from every point to a landmark
+	 * @param landmark ... index of landmark point
+	 * @param heap ... (empty) heap to use for the search
+	 */
+	private double[] inwards(int landmark, PointHeap heap) {
+		double[] cost = newCosts();
+		cost[landmark] = 0;
+		heap.add(landmark, 0);
+		while(!heap.isEmpty()) {
+			double c = heap.minKey();
+			int x = heap.pop();
+			for(int e = graph.first[x]; e < graph.first[x + 1]; e++) {
+				int y = graph.to[e];
+				if (passable[y] && reverse[e] >= 0)
+					relax(heap, cost, y, c + graph.cost[reverse[e]]);
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * record a (possibly) lower cost for reaching a point
+	 */
+	private void relax(PointHeap heap, double[] cost, int x, double c) {
+		if (c >= cost[x])
+			return;
+		if (heap.contains(x))
+			heap.decrease(x, c);
+		else
+			heap.add(x, c);
+		cost[x] = c;
+	}
+
+	/**
+	 * @return per point cost array, with no point yet reached
+	 */
+	private double[] newCosts() {
+		double[] cost = new double[passable.length];
+		for(int x = 0; x < cost.length; x++)
+			cost[x] = NONE;
+		return cost;
+	}
+}
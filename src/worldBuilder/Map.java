@@ -3,7 +3,6 @@ import java.awt.Color;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -64,6 +63,7 @@ public class Map {
 	private double faunaMap[];	// assigned fauna type
 	private double waterLevel[];// level of nearest water body
 	private LinkedList<TradeRoute> trade_routes;
+	private TravelGraph travel;	// (cached) travel costs between neighbors
 	
 	/** results of hydrological computation	*/
 	public double max_height,		// maximum altitude (m MSL)
@@ -468,7 +468,7 @@ public class Map {
 	 */
 	public boolean write(String filename) {
 		try {
-			FileWriter output = new FileWriter(filename);
+			FastWriter output = new FastWriter(filename);
 			final String T_FORMAT = "    \"subregion\": true,\n";
 			final String S_FORMAT = "    \"sealevel\": \"%d%s\",\n";
 			final String L_FORMAT = "    \"center\": { \"latitude\": \"%.6f\", \"longitude\": \"%.6f\" },\n";
@@ -518,7 +518,7 @@ public class Map {
 								output.write(",\n                     ");
 							else
 								output.write(", ");
-						output.write(String.format("%d", r.path[i]));
+						output.print(r.path[i]);
 					}
 					output.write( " ] }");
 				}
@@ -545,7 +545,7 @@ public class Map {
 				for(int n = 0; n < m.neighbors; n++) {
 					if (n != 0)
 						output.write(", ");
-					output.write(String.format("%d",  m.neighbor[n].index));
+					output.print(m.neighbor[n].index);
 					paths++;
 				}
 				output.write(" ]");
@@ -570,37 +570,74 @@ public class Map {
 	 * @param meshpoint to write
 	 * @throws IOException 
 	 */
-	private void writePoint(FileWriter output, MeshPoint p) throws IOException {
-		output.write("        {");
-		output.write(String.format(" \"x\": %.7f", p.x));
-		output.write(String.format(", \"y\": %.7f", p.y));
+	private void writePoint(FastWriter output, MeshPoint p) throws IOException {
+		output.write("        { \"x\": ");
+		output.print(p.x, 7);
+		output.write(", \"y\": ");
+		output.print(p.y, 7);
 		
 		int x = p.index;
-		if (heightMap[x] != 0)
-			output.write(String.format(", \"z\": %.9f", heightMap[x]));
-		if (erodeMap[x] != 0)
-			output.write(String.format(", \"erosion\": %.9f", erodeMap[x]));
-		if (rainMap[x] != 0)
-			output.write(String.format(", \"rain\": \"%.1f%s\"", rainMap[x], Parameters.unit_r));
+		if (heightMap[x] != 0) {
+			output.write(", \"z\": ");
+			output.print(heightMap[x], 9);
+		}
+		if (erodeMap[x] != 0) {
+			output.write(", \"erosion\": ");
+			output.print(erodeMap[x], 9);
+		}
+		if (rainMap[x] != 0) {
+			output.write(", \"rain\": \"");
+			output.print(rainMap[x], 1);
+			output.write(Parameters.unit_r);
+			output.write("\"");
+		}
 		if (soilMap[x] != 0)
-			output.write(String.format(", \"soil\": \"%s\"", rockNames[(int) Math.round(soilMap[x])]));
+			writeName(output, "soil", rockNames[(int) Math.round(soilMap[x])]);
 		if (floraMap[x] != 0)
-			output.write(String.format(", \"flora\": \"%s\"", floraNames[(int) Math.round(floraMap[x])]));
+			writeName(output, "flora", floraNames[(int) Math.round(floraMap[x])]);
 		if (faunaMap[x] != 0)
-			output.write(String.format(", \"fauna\": \"%s\"", faunaNames[(int) Math.round(faunaMap[x])]));
-		if (incoming[x] != 0)
-			output.write(String.format(", \"influx\": \"%.5f%s\"", incoming[x], Parameters.unit_f));
-		if (suspMap[x] != 0)
-			output.write(String.format(", \"suspended\": \"%.5f%s\"", suspMap[x], Parameters.unit_f));
-		if (e_factors[x] != 1.0)
-			output.write(String.format(", \"e_factor\": \"%.3f\"",  e_factors[x]));
-		if (s_factors[x] != 1.0)
-			output.write(String.format(", \"s_factor\": \"%.3f\"",  s_factors[x]));
+			writeName(output, "fauna", faunaNames[(int) Math.round(faunaMap[x])]);
+		if (incoming[x] != 0) {
+			output.write(", \"influx\": \"");
+			output.print(incoming[x], 5);
+			output.write(Parameters.unit_f);
+			output.write("\"");
+		}
+		if (suspMap[x] != 0) {
+			output.write(", \"suspended\": \"");
+			output.print(suspMap[x], 5);
+			output.write(Parameters.unit_f);
+			output.write("\"");
+		}
+		if (e_factors[x] != 1.0) {
+			output.write(", \"e_factor\": \"");
+			output.print(e_factors[x], 3);
+			output.write("\"");
+		}
+		if (s_factors[x] != 1.0) {
+			output.write(", \"s_factor\": \"");
+			output.print(s_factors[x], 3);
+			output.write("\"");
+		}
 		if (nameMap[x] != null)
-			output.write(String.format(", \"name\": \"%s\"",  nameMap[x]));
+			writeName(output, "name", nameMap[x]);
 		output.write(" }");
 	}
 	
+	/**
+	 * write out a (quoted) string attribute of a point
+	 * @param output ... open outputWriter
+	 * @param attribute ... name of the attribute
+	 * @param value ... value of the attribute
+	 */
+	private void writeName(FastWriter output, String attribute, String value) throws IOException {
+		output.write(", \"");
+		output.write(attribute);
+		output.write("\": \"");
+		output.write(String.valueOf(value));	// (as %s, null is "null")
+		output.write("\"");
+	}
+	
 	/**
 	 * return the Mesh underlying the current map
 	 */
@@ -612,6 +649,7 @@ public class Map {
 	 */
 	public void setMesh(Mesh mesh) {
 		this.mesh = mesh;	
+		ExportCache.clear();	// grids and layers for the old Mesh
 		if (mesh != null) {
 			this.heightMap = new double[mesh.vertices.length];
 			this.rainMap = new double[mesh.vertices.length];
@@ -631,6 +669,7 @@ public class Map {
 			this.drainage = new Drainage(this);
 			this.waterflow = new WaterFlow(this);
 			this.trade_routes = new LinkedList<TradeRoute>();
+			this.travel = null;
 		} else {
 			this.heightMap = null;
 			this.rainMap = null;
@@ -648,6 +687,7 @@ public class Map {
 			this.drainage = null;
 			this.waterflow = null;
 			this.trade_routes = null;
+			this.travel = null;
 		}
 		window.newMesh(mesh);
 		window.repaint();
@@ -676,6 +716,22 @@ public class Map {
 		return old;
 	}
 	
+	/**
+	 * update the height map, recomputing only the drainage basins affected
+	 * @param newHeight new set of Z values
+	 * @param changed ... per point booleans: which heights have changed
+	 */
+	public double[] setHeightMap(double newHeight[], boolean changed[]) {
+		double old[] = heightMap; 
+		heightMap = newHeight; 
+		drainage.recompute(changed);
+		waterflow.recompute(drainage.reflow);
+		window.newHeight();
+		window.repaint();
+		
+		return old;
+	}
+	
 	public void setErodeMap(double[] newErode) {
 		erodeMap = newErode;
 	}
@@ -981,6 +1037,16 @@ public class Map {
 	 * return array of water flow through each mesh point
 	 */
 	public double[] getFluxMap() {return fluxMap;}
+	
+	/**
+	 * return the travel graph for the current mesh
+	 *   (whose costs must be brought up to date before use)
+	 */
+	public TravelGraph getTravelGraph() {
+		if (travel == null || travel.mesh != mesh)
+			travel = new TravelGraph(mesh);
+		return travel;
+	}
 
 	/**
 	 * return array of net erosion/deposition at each mesh point
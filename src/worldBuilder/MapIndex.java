@@ -3,7 +3,6 @@ package worldBuilder;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.ListIterator;
@@ -148,7 +147,7 @@ public class MapIndex {
 	public void flush() {
 		String filename = path + "/" + INFO_FILE_NAME;
 		try {
-			FileWriter output = new FileWriter(filename);
+			FastWriter output = new FastWriter(filename);
 			output.write("[\nnull,");
 			written = 0;
 			flushChildren(0, output);
@@ -168,7 +167,7 @@ public class MapIndex {
 	 * @param parent
 	 * @param output
 	 */
-	public void flushChildren(int parent, FileWriter output) throws IOException {
+	public void flushChildren(int parent, FastWriter output) throws IOException {
 			for( ListIterator<RpgmMap> it = maps.listIterator(); it.hasNext(); ) {
 				RpgmMap m = it.next();
 				if (m.parent == parent) {
@@ -182,17 +181,23 @@ public class MapIndex {
 	 * write out a single map description
 	 * @param m - the RpgmMap to be written
 	 */
-	public void flushMap(RpgmMap m, FileWriter output) throws IOException {
+	public void flushMap(RpgmMap m, FastWriter output) throws IOException {
 			if (written > 0)
 				output.write(",");
 			output.write("\n");
-			output.write(String.format("{\"id\":%d", m.id));
-			output.write(String.format(",\"expanded\":%s", hasChildren(m.id) ? "true" : "false"));
-			output.write(String.format(",\"name\":\"%s\"", m.name));
-			output.write(String.format(",\"order\":%d", ++written));
-			output.write(String.format(",\"parentId\":%d", m.parent));
-			output.write(String.format(",\"scrollX\":%.1f", m.x));
-			output.write(String.format(",\"scrollY\":%.1f", m.y));
+			output.write("{\"id\":");
+			output.print(m.id);
+			output.write(hasChildren(m.id) ? ",\"expanded\":true" : ",\"expanded\":false");
+			output.write(",\"name\":\"");
+			output.write(String.valueOf(m.name));
+			output.write("\",\"order\":");
+			output.print(++written);
+			output.write(",\"parentId\":");
+			output.print(m.parent);
+			output.write(",\"scrollX\":");
+			output.print(m.x, 1);
+			output.write(",\"scrollY\":");
+			output.print(m.y, 1);
 			output.write("}");
 		}
 	
@@ -73,6 +73,7 @@ public class MapWindow extends JPanel implements MouseListener, MouseMotionListe
 	private Cartesian poly_map;		// interpolation based on surrounding polygon
 	private double tileHeight[][];	// altitude of each screen tile (Z units)
 	private double tileDepth[][];	// depth u/w of each screen tile (meters)
+	private double tileLayers[][][];	// (reusable) per-tile interpolation buffers
 	
 	/** selection types: points, line, rectangle, ... */
 	public enum Selection {NONE, POINT, POINTS, LINE, RECTANGLE, SQUARE, ANY};
@@ -726,8 +727,10 @@ public class MapWindow extends JPanel implements MouseListener, MouseMotionListe
 		// make sure we have an up-to-date per-tile altitude map
 		if (tileHeight == null || 
 				tileHeight.length != poly_map.height || tileHeight[0].length != poly_map.width) {
-			tileHeight = poly_map.interpolate(map.getHeightMap());
-			double[][] erosion = poly_map.interpolate(map.getErodeMap());
+			double[][] layers = {map.getHeightMap(), map.getErodeMap()};
+			tileLayers = poly_map.interpolate(layers, tileLayers);
+			tileHeight = tileLayers[0];
+			double[][] erosion = tileLayers[1];
 			for(int i = 0; i < poly_map.height; i++)
 				for(int j = 0; j < poly_map.width; j++)
 					tileHeight[i][j] -= erosion[i][j];
@@ -737,10 +740,11 @@ public class MapWindow extends JPanel implements MouseListener, MouseMotionListe
 		double waterLevel[] = map.getWaterLevel();
 		if (tileDepth == null || 
 				tileDepth.length != poly_map.height || tileDepth[0].length != poly_map.width) {
+			double[][] waters = poly_map.nearestValid(waterLevel, WaterFlow.UNKNOWN);
 			tileDepth = new double[poly_map.height][poly_map.width];
 			for(int i = 0; i < poly_map.height; i++)
 				for(int j = 0; j < poly_map.width; j++) {
-					double water = poly_map.cells[i][j].nearestValid(waterLevel, WaterFlow.UNKNOWN);
+					double water = waters[i][j];
 					if (water > tileHeight[i][j])
 						tileDepth[i][j] = parms.height(water - tileHeight[i][j]);
 				}
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 
 import javax.json.Json;
 import javax.json.stream.JsonParser;
@@ -61,8 +62,11 @@ public class Mesh {
 	/** the MeshPoints in this Mesh */
 	public MeshPoint[] vertices;
 	private Parameters parms;		// global options
+	private MeshGrid grid;			// spatial index of vertices
+	private MeshPoint[] indexed;	// vertices covered by that index
 	
 	private static final int MESH_DEBUG = 3;
+	private static final int MIN_BAND = 256;	// faces per parallel task
 	
 	/**
 	 * create an initial (empty) array of MeshPoints
@@ -225,6 +229,9 @@ public class Mesh {
 			System.err.println("FATAL: close error on input file " + filename);			
 		}
 		
+		// index the new vertices for nearest point searches
+		buildGrid();
+		
 		if (points == 0) {
 			System.out.println("ERROR: file " + filename + " does not contain any mesh points");
 			return;
@@ -240,19 +247,27 @@ public class Mesh {
 	 * @return MeshPoint (closest)
 	 */
 	public MeshPoint choosePoint(double x, double y) {
-		MeshPoint spot = new MeshPoint(x,y);
-		MeshPoint closest = null;
-		double distance = 2 * Parameters.x_extent;
-		
-		for( int i = 0; i < vertices.length; i++ ) {
-			MeshPoint p = vertices[i];
-			double d = p.distance(spot);
-			if (d < distance) {
-				closest = p;
-				distance = d;
-			}
-		}
-		return(closest);
+		int closest = grid().nearest(x, y);
+		return (closest >= 0) ? vertices[closest] : null;
+	}
+
+	/**
+	 * return a spatial index of the MeshPoints in this Mesh
+	 * 	(built by makeMesh/read, and rebuilt if the vertices are replaced)
+	 * @return MeshGrid of the current vertices
+	 */
+	public MeshGrid grid() {
+		if (grid == null || indexed != vertices)
+			buildGrid();
+		return grid;
+	}
+	
+	/**
+	 * (re)build the spatial index for the current vertices
+	 */
+	private void buildGrid() {
+		grid = new MeshGrid(vertices);
+		indexed = vertices;
 	}
 
 	/**
@@ -313,8 +328,15 @@ public class Mesh {
 		}
 		HalfEdgeDiagram g = vd.get_graph_reference();
 		
-		// find the centroid of each voronoi polygon
-		int i = 0;
+		// index the faces by the (identity of the) site that owns them
+		IdentityHashMap<Point, Face> siteFaces = new IdentityHashMap<Point, Face>();
+		for (Face f: g.faces)
+			if (f.site instanceof PointSite)
+				siteFaces.putIfAbsent(((PointSite) f.site).position(), f);
+		
+		// find the face that owns each (in the box) initial point site
+		ArrayList<Vertex> sites = new ArrayList<Vertex>();
+		ArrayList<Face> faces = new ArrayList<Face>();
 		for (Vertex v : g.vertices) {
 			// start with the initial point sites
 			if (v.type != VertexType.POINTSITE)
@@ -324,32 +346,32 @@ public class Mesh {
 			if (!inTheBox(v.position))
 				continue;
 
-			// find the face that owns the point
-			Face chosenFace = null;
-			for (Face f: g.faces) {
-				PointSite p = (PointSite) f.site;
-				if (p.position() != v.position)
-					continue;
-				chosenFace = f;
-				break;
-			}
+			Face chosenFace = siteFaces.get(v.position);
 			assert(chosenFace != null);
-			
-			// walk the edges and average their coordinates
-			double x_sum = 0;
-			double y_sum = 0;
-			int numPoints = 0;
-			for (Edge e: g.face_edges(chosenFace)) {
-				Point p = truncate(e.source.position);
-				x_sum += p.x;
-				y_sum += p.y;
-				numPoints++;
-			}
-			newPoints[i++] = new MeshPoint(x_sum/numPoints, y_sum/numPoints);
-			
-			if (parms.debug_level  > MESH_DEBUG)
-				System.out.println("initial point <" + v.position + "> -> " + newPoints[i-1]);
+			sites.add(v);
+			faces.add(chosenFace);
 		}
+		
+		// find the centroid of each voronoi polygon (independently)
+		Parallel.forBands(faces.size(), MIN_BAND, (first, last) -> {
+			for(int i = first; i < last; i++) {
+				// walk the edges and average their coordinates
+				double x_sum = 0;
+				double y_sum = 0;
+				int numPoints = 0;
+				for (Edge e: g.face_edges(faces.get(i))) {
+					Point p = truncate(e.source.position);
+					x_sum += p.x;
+					y_sum += p.y;
+					numPoints++;
+				}
+				newPoints[i] = new MeshPoint(x_sum/numPoints, y_sum/numPoints);
+			}
+		});
+		
+		if (parms.debug_level  > MESH_DEBUG)
+			for(int i = 0; i < sites.size(); i++)
+				System.out.println("initial point <" + sites.get(i).position + "> -> " + newPoints[i]);
 		return(newPoints);
 	}
 	
@@ -443,6 +465,9 @@ public class Mesh {
 		for(int i = 0; i < pointhash.numVertices; i++)
 			vertices[i] = pointhash.vertices[i];
 		
+		// index the new vertices for nearest point searches
+		buildGrid();
+		
 		// FIX scale the mesh to exactly fill the map
 		/*
 		 * NOTE
@@ -0,0 +1,207 @@
+package worldBuilder;
+/**
+ * a uniform grid of buckets, each listing the MeshPoints that fall
+ * within it, so that nearest-point searches only have to consider the
+ * points in (a few rings of) buckets around the desired coordinate,
+ * rather than every point in the Mesh.
+ *
+ * The buckets are stored (compressed) as a single array of point
+ * indices, sorted by bucket, with a per-bucket starting offset.
+ *
+ * Note: ties (equidistant points) are broken in favor of the lower
+ *		 point index, so that searches return exactly the same point
+ *		 as a linear scan (in index order) of the whole Mesh.
+ */
+public class MeshGrid {
+
+	private static final int POINTS_PER_BUCKET = 2;	// target bucket density
+
+	private MeshPoint[] points;	// the indexed MeshPoints
+	private int cols, rows;		// number of buckets in each dimension
+	private double x_min, y_min;	// upper left corner of the grid
+	private double cell_w, cell_h;	// size of each bucket
+	private double cell_min;	// the lesser of width and height
+	private int[] first;		// index (in members) of each bucket's first point
+	private int[] members;		// point indices, sorted by bucket
+
+	/**
+	 * index a set of MeshPoints
+	 * @param points ... array of MeshPoints to be indexed
+	 */
+	public MeshGrid(MeshPoint[] points) {
+		this.points = points;
+		int n = points.length;
+
+		// figure out the area covered by the points
+		x_min = 666;
+		y_min = 666;
+		double x_max = -666;
+		double y_max = -666;
+		int found = 0;
+		for(int i = 0; i < n; i++) {
+			if (points[i] == null)
+				continue;	// (e.g. from a truncated file)
+			found++;
+			if (points[i].x < x_min) x_min = points[i].x;
+			if (points[i].x > x_max) x_max = points[i].x;
+			if (points[i].y < y_min) y_min = points[i].y;
+			if (points[i].y > y_max) y_max = points[i].y;
+		}
+		if (found == 0) {
+			x_min = 0; x_max = 0;
+			y_min = 0; y_max = 0;
+		}
+
+		// choose a (roughly square) bucket size for the desired density
+		int buckets = Math.max(1, found / POINTS_PER_BUCKET);
+		double width = Math.max(x_max - x_min, Parameters.x_extent / 1000);
+		double height = Math.max(y_max - y_min, Parameters.y_extent / 1000);
+		double side = Math.sqrt((width * height) / buckets);
+		cols = Math.max(1, (int) Math.ceil(width / side));
+		rows = Math.max(1, (int) Math.ceil(height / side));
+		cell_w = width / cols;
+		cell_h = height / rows;
+		cell_min = (cell_w < cell_h) ? cell_w : cell_h;
+
+		// count the points in each bucket
+		first = new int[(cols * rows) + 1];
+		int[] bucket = new int[n];
+		for(int i = 0; i < n; i++) {
+			if (points[i] == null) {
+				bucket[i] = -1;
+				continue;
+			}
+			bucket[i] = (row(points[i].y) * cols) + col(points[i].x);
+			first[bucket[i] + 1]++;
+		}
+		for(int b = 0; b < cols * rows; b++)
+			first[b + 1] += first[b];
+
+		// and then distribute them (in index order) into the buckets
+		members = new int[found];
+		int[] next = new int[cols * rows];
+		for(int i = 0; i < n; i++) {
+			int b = bucket[i];
+			if (b < 0)
+				continue;
+			members[first[b] + next[b]++] = i;
+		}
+	}
+
+	/**
+	 * @return number of MeshPoints in this index
+	 */
+	public int size() {
+		return points.length;
+	}
+
+	/**
+	 * bucket column for an x coordinate (clamped to the grid)
+	 */
+	private int col(double x) {
+		int c = (int) Math.floor((x - x_min) / cell_w);
+		return (c < 0) ? 0 : (c >= cols) ? cols - 1 : c;
+	}
+
+	/**
+	 * bucket row for a y coordinate (clamped to the grid)
+	 */
+	private int row(double y) {
+		int r = (int) Math.floor((y - y_min) / cell_h);
+		return (r < 0) ? 0 : (r >= rows) ? rows - 1 : r;
+	}
+
+	/**
+	 * find the MeshPoint closest to a map coordinate
+	 * @param x desired map coordinate (e.g. -0.5 to 0.5)
+	 * @param y desired map coordinate (e.g. -0.5 to 0.5)
+	 * @return index of the closest MeshPoint (or -1 if there are none)
+	 */
+	public int nearest(double x, double y) {
+		int c0 = col(x);
+		int r0 = row(y);
+		int best = -1;
+		double bestDist = 0;
+
+		// search successively larger rings around the starting bucket
+		int maxRing = Math.max(Math.max(c0, cols - 1 - c0), Math.max(r0, rows - 1 - r0));
+		for(int ring = 0; ring <= maxRing; ring++) {
+			for(int r = r0 - ring; r <= r0 + ring; r++) {
+				if (r < 0 || r >= rows)
+					continue;
+				// interior rows of the ring only have two buckets
+				int step = (r == r0 - ring || r == r0 + ring) ? 1 : 2 * ring;
+				for(int c = c0 - ring; c <= c0 + ring; c += (step == 0) ? 1 : step) {
+					if (c < 0 || c >= cols)
+						continue;
+					int b = (r * cols) + c;
+					for(int m = first[b]; m < first[b + 1]; m++) {
+						int i = members[m];
+						double dx = points[i].x - x;
+						double dy = points[i].y - y;
+						double d = Math.sqrt((dx*dx) + (dy*dy));
+						if (best < 0 || d < bestDist || (d == bestDist && i < best)) {
+							best = i;
+							bestDist = d;
+						}
+					}
+				}
+			}
+
+			// nothing in the next ring can be closer than this
+			if (best >= 0 && bestDist < ring * cell_min)
+				break;
+		}
+		return best;
+	}
+
+	/**
+	 * find the MeshPoint closest to a map coordinate within one quadrant
+	 * @param x desired map coordinate (e.g. -0.5 to 0.5)
+	 * @param y desired map coordinate (e.g. -0.5 to 0.5)
+	 * @param east ... consider only points with (p.x - x) &gt;= 0 (else &lt; 0)
+	 * @param south ... consider only points with (p.y - y) &gt;= 0 (else &lt; 0)
+	 * @return index of the closest such MeshPoint (or -1 if there are none)
+	 *
+	 * The only buckets that can contain points in the quadrant are those
+	 * in the rectangle extending (east/west, north/south) from the bucket
+	 * that contains (x,y), so we search rings of that rectangle.
+	 */
+	public int nearest(double x, double y, boolean east, boolean south) {
+		int c0 = col(x);
+		int r0 = row(y);
+		int dc = east ? 1 : -1;
+		int dr = south ? 1 : -1;
+		int maxCol = east ? cols - 1 - c0 : c0;
+		int maxRow = south ? rows - 1 - r0 : r0;
+		int best = -1;
+		double bestDist = 0;
+
+		int maxRing = Math.max(maxCol, maxRow);
+		for(int ring = 0; ring <= maxRing; ring++) {
+			for(int j = 0; j <= ring && j <= maxRow; j++) {
+				// interior rows of the ring only have one bucket
+				for(int i = (j == ring) ? 0 : ring; i <= ring && i <= maxCol; i++) {
+					int b = ((r0 + (j * dr)) * cols) + c0 + (i * dc);
+					for(int m = first[b]; m < first[b + 1]; m++) {
+						int p = members[m];
+						double dx = points[p].x - x;
+						double dy = points[p].y - y;
+						if ((dx >= 0) != east || (dy >= 0) != south)
+							continue;
+						double d = Math.sqrt((dx*dx) + (dy*dy));
+						if (best < 0 || d < bestDist || (d == bestDist && p < best)) {
+							best = p;
+							bestDist = d;
+						}
+					}
+				}
+			}
+
+			// nothing in the next ring can be closer than this
+			if (best >= 0 && bestDist < ring * cell_min)
+				break;
+		}
+		return best;
+	}
+}
@@ -255,7 +255,7 @@ public class MountainDialog extends JFrame implements ActionListener, ChangeList
 		selected = window.checkSelection(MapWindow.Selection.LINE);
 		
 		// instantiate a TerrainEngine
-		te = new TerrainEngine(map);
+		te = new TerrainEngine(map, true);
 	}
 
 	
@@ -29,6 +29,7 @@ public class ObjectExporter implements Exporter {
 	// private double[][] rain;		// per point rainfall (meters)
 	private double[][] erode;		// per point erosion (Z units)
 	private double[][] waterDepth;	// per point water depth (Z units)
+	private DerivativeField field;	// slopes of the height/erosion maps
 	// private double[][] soil;		// per point soil type
 	private double[][] flora;		// per point flora type
 
@@ -36,8 +37,16 @@ public class ObjectExporter implements Exporter {
 	private double minHeight;		// lowest discovered altitude
 	private double maxDepth;		// deepest discovered water
 
+	// per tile bidding attributes (computed when overlays are chosen)
+	private int[][] dPct;			// per tile water depth percentile
+	private int[][] aPct;			// per tile altitude percentile
+	private double[][] slopes;		// per tile slope (dZ/dXY)
+
 	private int firstPass;			// lowest rule order
 	private int lastPass;			// highest rule order
+	private RuleTable table;		// compiled overlay rules
+	private static final int A_PCT = RuleTable.ATTRIBUTES;		// altitude percentile
+	private static final int D_PCT = RuleTable.ATTRIBUTES + 1;	// depth percentile
 	private static final double IMPOSSIBLE = -666.0;	// Rule rejects this tile
 
 	// brightness constants for preview colors
@@ -76,6 +85,14 @@ public class ObjectExporter implements Exporter {
 			}
 		}
 
+		// compile the rules, adding the percentile ranges to each
+		table = new RuleTable(overlays > 0 ? ResourceRule.rules : new LinkedList<ResourceRule>(), 2);
+		for(int r = 0; r < table.size; r++) {
+			OverlayRule o = (OverlayRule) table.rules[r];
+			table.setRange(A_PCT, r, o.a_min, o.a_max);
+			table.setRange(D_PCT, r, o.d_min, o.d_max);
+		}
+
 		if (parms.debug_level >= EXPORT_DEBUG)
 			System.out.println("new Object exporter (" + height + "x" + width + ") w/" + overlays + " overlays");
 	}
@@ -137,6 +154,7 @@ public class ObjectExporter implements Exporter {
 	 */
 	public void heightMap(double[][] heights) {
 		this.heights = heights;
+		this.field = null;
 
 		// note the max and min heights
 		maxHeight = 0;
@@ -157,6 +175,7 @@ public class ObjectExporter implements Exporter {
 	 */
 	public void erodeMap(double[][] erode) {
 		this.erode = erode;	
+		this.field = null;
 	}
 
 	/**
@@ -216,18 +235,9 @@ public class ObjectExporter implements Exporter {
 	 * @return aggregate slope (dZdXY) of that tile
 	 */
 	private double slope(int row, int col) {
-		double z0 = heights[row][col] - erode[row][col];
-		// compute the east/west dZ/dTile
-		double zx1 = (col > 0) ? heights[row][col-1] - erode[row][col-1] :
-			heights[row][col+1] - erode[row][col+1];
-		double dzx = (z0 > zx1) ? z0 - zx1 : zx1 - z0;
-		// compute the north/south dZ/dTile
-		double zy1 = (row > 0) ? heights[row-1][col] - erode[row-1][col] :
-			heights[row+1][col] - erode[row+1][col];
-		double dzy = (z0 > zy1) ? z0 - zy1 : zy1 - z0;
-		// turn that into a slope
-		double dz = dzx > dzy ? dzx: dzy;
-		return parms.height(dz) / tile_size;
+		if (field == null)
+			field = DerivativeField.get(heights, erode);
+		return parms.height(field.steepest[row][col]) / tile_size;
 	}
 
 	/**
@@ -253,22 +263,42 @@ public class ObjectExporter implements Exporter {
 		boolean[][] taken = new boolean[y_points][x_points];
 		overlays = new LinkedList<Overlay>();
 
+		// compute the per-tile attributes on which the rules bid
+		dPct = new int[y_points][x_points];
+		aPct = new int[y_points][x_points];
+		slopes = new double[y_points][x_points];
+		for(int y = 0; y < y_points; y++)
+			for(int x = 0; x < x_points; x++) {
+				double d = waterDepth[y][x];
+				dPct[y][x] = (int) (100.0 * d / maxDepth);
+				double a = (heights[y][x] - erode[y][x]) - parms.sea_level;
+				aPct[y][x] = Math.max(0, (int) (100 * a / (maxHeight - parms.sea_level)));
+				slopes[y][x] = slope(y, x);
+			}
+
 		// go through bidding in ordered passes
+		int[][] refusals = new int[table.size][];
 		for(int order = firstPass; order <= lastPass; order++) {
+			// note the tiles on which each of this pass's rules cannot bid
+			for(int r = 0; r < table.size; r++)
+				refusals[r] = (table.order[r] == order) ? refusals(r) : null;
+
 			// collect bids for every tile
 			for(int y = 0; y < y_points; y++)
 				for(int x = 0; x < x_points; x++) {
 					// collect bids from every eligible rule
 					OverlayRule winning_rule = null;
 					double winning_bid = IMPOSSIBLE;
-					for( ListIterator<ResourceRule> it = ResourceRule.iterator(); it.hasNext();) {
-						OverlayRule o = (OverlayRule) it.next();
-						if (o.order != order)
+					for(int r = 0; r < table.size; r++) {
+						if (table.order[r] != order)
 							continue;		// wrong pass for this rule
+						OverlayRule o = (OverlayRule) table.rules[r];
 						if (y > y_points - o.height)
 							continue;		// stamp would spill past bottom
 						if (x > x_points - o.width)
 							continue;		// stamp would spill beyond edge
+						if (refused(refusals[r], y, x, o.height, o.width))
+							continue;		// some tile is unacceptable
 
 						// consider each tile this stamp would cover
 						double this_bid = 0;
@@ -278,22 +308,10 @@ public class ObjectExporter implements Exporter {
 									this_bid += IMPOSSIBLE;	// some tiles already taken
 									continue;
 								}
-								// see if we meet the depth percentile requirements
-								double d = waterDepth[y+i][x+j];
-								int d_pct = (int) (100.0 * d / maxDepth);
-								if (d > 0 && o.d_max == 0)
-									this_bid += IMPOSSIBLE;	// land rule and u/w tile
-								else
-									this_bid += o.range_bid(d_pct, o.d_min, o.d_max);
-						
-								// see if we meet the altitude percentile requirements
-								double a = (heights[y+i][x+j] - erode[y+i][x+j]) - parms.sea_level;
-								int a_pct = Math.max(0, (int) (100 * a / (maxHeight - parms.sea_level)));
-								this_bid += o.range_bid(a_pct, o.a_min, o.a_max);
-		
-								// see if we meet the slope requirements
-								double slope = slope(y+i,x+j);
-								this_bid += o.range_bid(slope, o.minSlope, o.maxSlope);
+								// depth/altitude percentile and slope requirements
+								this_bid += table.rangeBid(D_PCT, r, dPct[y+i][x+j]);
+								this_bid += table.rangeBid(A_PCT, r, aPct[y+i][x+j]);
+								this_bid += table.rangeBid(RuleTable.SLOPE, r, slopes[y+i][x+j]);
 								
 								// XXX enable normal ResourceRule bidding for ObjectExporter.chooseOverlays?
 								// this_bid += (parms.height(a), parms.height(d), flux[tile], rain[tile], Tsummer, Twinter);
@@ -301,7 +319,7 @@ public class ObjectExporter implements Exporter {
 							}
 
 						if (this_bid > 0) {	
-							this_bid *= o.vigor;
+							this_bid *= table.vigor[r];
 							if (this_bid > winning_bid) {
 								winning_bid = this_bid;
 								winning_rule = o;
@@ -319,6 +337,50 @@ public class ObjectExporter implements Exporter {
 		}	// end of per-pass loop
 	}
 
+	/**
+	 * summed-area table of the tiles on which a rule cannot bid
+	 *
+	 *	a tile is unacceptable if its depth, altitude or slope is
+	 *	beyond the (possibly flexible) range of the rule, or if it
+	 *	is under water and the rule is for land.
+	 *
+	 * @param r ... (table) rule number
+	 * @return (y_points+1) x (x_points+1) table, where [y][x] is the
+	 *		   number of unacceptable tiles above and left of (y,x)
+	 */
+	private int[] refusals(int r) {
+		OverlayRule o = (OverlayRule) table.rules[r];
+		int w = x_points + 1;
+		int[] sums = new int[(y_points + 1) * w];
+		for(int y = 0; y < y_points; y++) {
+			int row = 0;	// unacceptable tiles to the left in this row
+			for(int x = 0; x < x_points; x++) {
+				boolean refuse = (waterDepth[y][x] > 0 && o.d_max == 0) ||
+						table.rangeBid(D_PCT, r, dPct[y][x]) == IMPOSSIBLE ||
+						table.rangeBid(A_PCT, r, aPct[y][x]) == IMPOSSIBLE ||
+						table.rangeBid(RuleTable.SLOPE, r, slopes[y][x]) == IMPOSSIBLE;
+				if (refuse)
+					row++;
+				sums[((y + 1) * w) + x + 1] = sums[(y * w) + x + 1] + row;
+			}
+		}
+		return sums;
+	}
+
+	/**
+	 * does a stamp cover any tile on which its rule cannot bid
+	 * @param sums ... summed-area table for that rule
+	 * @param y ... top row of the stamp
+	 * @param x ... left column of the stamp
+	 * @param height ... height (in tiles) of the stamp
+	 * @param width ... width (in tiles) of the stamp
+	 */
+	private boolean refused(int[] sums, int y, int x, int height, int width) {
+		int w = x_points + 1;
+		return sums[((y + height) * w) + x + width] - sums[(y * w) + x + width]
+				- sums[((y + height) * w) + x] + sums[(y * w) + x] > 0;
+	}
+
 	/**
 	 * Export the up-loaded information in selected format
 	 * 
@@ -125,6 +125,21 @@ public class OverlayRule extends ResourceRule {
 		System.err.println(ruleFile + ": Unrecognized attribute: (" + name + "=" + value + ")");
 	}
 	
+	/**
+	 * @return the tile size (for the entire rule set)
+	 */
+	protected int ruleSetValue() {
+		return tile_size;
+	}
+	
+	/**
+	 * restore the tile size when a cached rule set is re-used
+	 * @param value ... tile size (when the rule set was parsed)
+	 */
+	protected void ruleSetValue(int value) {
+		tile_size = value;
+	}
+	
 	/**
 	 * called from ResourceRule.loadFile ... set an extended attribute (min/max double value)
 	 * @param name of the attribute being set
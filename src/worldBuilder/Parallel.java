@@ -0,0 +1,96 @@
+package worldBuilder;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * run independent iterations of a loop (e.g. rows of a Cartesian map)
+ * in bands, on a (shared) fork/join pool of Parameters.threads workers.
+ *
+ * The bands are disjoint, so as long as each iteration writes only its
+ * own results, the results are identical to those of a serial loop.
+ * If only one thread is configured, the loop is simply run serially.
+ */
+public class Parallel {
+
+	/**
+	 * the body of a loop, to be run over a band of iterations
+	 */
+	public interface Band {
+		/**
+		 * run a band of loop iterations
+		 * @param first iteration in this band
+		 * @param last (exclusive) iteration in this band
+		 */
+		void run(int first, int last);
+	}
+
+	private static ForkJoinPool pool;	// shared worker pool
+
+	private static final int BANDS_PER_THREAD = 4;	// for load balancing
+
+	/**
+	 * @return whether or not parallel execution is configured
+	 */
+	public static boolean enabled() {
+		return Parameters.getInstance().threads > 1;
+	}
+
+	/**
+	 * run a loop, in bands, over a range of iterations
+	 * @param count number of iterations (0 to count-1)
+	 * @param minBand minimum number of iterations worth a separate task
+	 * @param body loop body to be run for each band
+	 */
+	public static void forBands(int count, int minBand, Band body) {
+		int threads = Parameters.getInstance().threads;
+		if (threads <= 1 || count <= minBand) {
+			body.run(0, count);
+			return;
+		}
+
+		// choose a band size that keeps all of the workers busy
+		int band = count / (threads * BANDS_PER_THREAD);
+		if (band < minBand)
+			band = (minBand > 0) ? minBand : 1;
+		getPool(threads).invoke(new BandTask(body, 0, count, band));
+	}
+
+	/**
+	 * return the shared pool, (re)creating it if the size has changed
+	 */
+	private static synchronized ForkJoinPool getPool(int threads) {
+		if (pool == null || pool.getParallelism() != threads) {
+			if (pool != null)
+				pool.shutdown();
+			pool = new ForkJoinPool(threads);
+		}
+		return pool;
+	}
+
+	/**
+	 * a range of iterations, recursively split into bands
+	 */
+	private static class BandTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private Band body;
+		private int first, last, band;
+
+		BandTask(Band body, int first, int last, int band) {
+			this.body = body;
+			this.first = first;
+			this.last = last;
+			this.band = band;
+		}
+
+		protected void compute() {
+			if (last - first <= band) {
+				body.run(first, last);
+				return;
+			}
+			int middle = first + (last - first) / 2;
+			invokeAll(new BandTask(body, first, middle, band),
+					  new BandTask(body, middle, last, band));
+		}
+	}
+}
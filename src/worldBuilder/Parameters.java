@@ -61,6 +61,15 @@ public class Parameters {
 	/** new mesh smooth iterations	*/	public int improvements = 1;
 	/** new mesh initial dz/dx		*/	public double slope_init = 0.00001;
 
+	// computation parameters
+	/** worker threads (1 = serial)	*/	public int threads = Runtime.getRuntime().availableProcessors();
+	/** drainage: scan for sink escapes	*/	public static final int ESCAPE_SCAN = 0;
+	/** drainage: priority-flood sinks	*/	public static final int PRIORITY_FLOOD = 1;
+	/** sink escape algorithm		*/	public int drainage = ESCAPE_SCAN;
+	/** tiling: one random stream per level	*/	public static final int PER_LEVEL = 0;
+	/** tiling: one random stream per tile	*/	public static final int PER_TILE = 1;
+	/** RPGM flora tiling random streams	*/	public int tiling = PER_LEVEL;
+
 	// planetary parameters ... unlikely to change
 	/** planetary radius (km)		*/	public int radius = 6371;
 	/** planeteary axis tilt (deg)	*/	public double tilt = 23.5;
@@ -398,6 +407,20 @@ public class Parameters {
 				case "icons":
 					icon_dir = parser.getString();
 					break;
+				case "drainage":
+					String d = parser.getString();
+					if (d.equals("flood"))
+						drainage = PRIORITY_FLOOD;
+					else if (d.equals("escape"))
+						drainage = ESCAPE_SCAN;
+					break;
+				case "tiling":
+					String t = parser.getString();
+					if (t.equals("per-tile"))
+						tiling = PER_TILE;
+					else if (t.equals("per-level"))
+						tiling = PER_LEVEL;
+					break;
 				case "outline":
 					String s = parser.getString();
 					if (s.equals("square"))
@@ -539,6 +562,9 @@ public class Parameters {
 				case "improvements":
 					improvements = Integer.valueOf(parser.getString());
 					break;
+				case "threads":
+					threads = Integer.valueOf(parser.getString());
+					break;
 					
 				// trade route parameters
 				case "flat km":
@@ -621,6 +647,9 @@ public class Parameters {
 			System.out.println("   warnings:   tiles=" + tiles_max);
 
 			System.out.println("   icons:      " + icon_dir);
+			System.out.println("   threads:    " + threads);
+			System.out.println("   drainage:   " + (drainage == PRIORITY_FLOOD ? "flood" : "escape"));
+			System.out.println("   tiling:     " + (tiling == PER_TILE ? "per-tile" : "per-level"));
 			System.out.println("   verbosity:  " + debug_level);
 		}
 	}
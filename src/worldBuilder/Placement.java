@@ -1,6 +1,7 @@
 package worldBuilder;
 
 import java.awt.Color;
+import java.util.Arrays;
 import java.util.ListIterator;
 
 /**
@@ -28,18 +29,24 @@ public class Placement {
 
 	private ResourceRule bidders[];	// resource bidding rules
 	private int numRules;		// number of bidding rules
+	private RuleTable table;	// compiled bidding rules
 	private int firstPass;		// lowest numbered bidding pass
 	private int lastPass;		// highest numbered bidding pass
 
+	// bidding state for the current update (shared by parallel bidders)
+	private boolean selected[];	// which points are to be populated
+	private int quotas[];		// per class quotas (in MeshPoints)
+	private int counts[];		// per class allocated points
+	private int bidderClass[];	// class number for each bidding rule
+	private int bestRule[];		// per point winning rule (or -1)
+	private double bestBid[];	// per point winning bid
+
 	private Color colorMap[];	// per-rule preview colors
 	private String nameMap[];	// per-rule resource names
 	// private String classes;		// names of resource classes
 	
-	private static final int ECOTOPE_ANY = -1;
-	private static final int ECOTOPE_GREEN = -2;
-	private static final int ECOTOPE_NON_GREEN = -3;	// NONE, Desert, Alpine
-	
 	private static final int PLACEMENT_DEBUG = 2;
+	private static final int MIN_BAND = 256;	// points per parallel task
 
 
 	/**
@@ -74,6 +81,7 @@ public class Placement {
 			if (r.order > lastPass)
 				lastPass = r.order;
 		}
+		table = new RuleTable(Arrays.asList(bidders).subList(0, numRules), 0);
 		
 		// if we were passed a map, save its tables
 		if (map != null) {
@@ -113,25 +121,6 @@ public class Placement {
 		return NONE;
 	}
 
-	/**
-	 * record of a winning bid (from a id(type) for a MeshPoint
-	 */
-	private class PointBid {
-		int	type;		// resource type (meaningful to its class)
-		int id;			// resource id
-		int index;		// index of the point for which this bid was made
-		double bid;		// amount of this bid
-		PointBid next;	// next bid in the list
-
-		PointBid(int index, int type, int id, double bid) {
-			this.index = index;
-			this.type = type;
-			this.id = id;
-			this.bid = bid;
-			this.next = null;
-		}
-	}
-
 	public int[] update(double x0, double y0, double height, double width, int quotas[], String classNames[]) {
 		boolean[] selected = new boolean[map.mesh.vertices.length];
 		for(int i = 0; i < selected.length; i++) {
@@ -155,51 +144,32 @@ public class Placement {
 	 * @return array of (per-class) point placements
 	 */
 	public int[] update(boolean[] selected, int quotas[], String classNames[]) {
-
-		int counts[] = new int[MAX_RULES];	// allocated points (vs quotas)
+		this.selected = selected;
+		this.quotas = quotas;
+		counts = new int[MAX_RULES];	// allocated points (vs quotas)
 		
 		// get the class number for each bidding rule
-		int bidderClass[] = new int[numRules];
+		bidderClass = new int[numRules];
 		for(int i = 0; i < classNames.length; i++)
 			for(int r = 0; r < numRules; r++)
 				if (bidders[r].className != null && bidders[r].className.equals(classNames[i]))
 					bidderClass[r] = i;
 		
-		// get the ecotope number for each bidding rule
-		String[] floraNames = map.floraNames;
-		int bidderFlora[] = new int[numRules];
-		for(int r = 0; r < numRules; r++) {
-			String f = bidders[r].floraType;
-			if (f == null || f.equals("ANY") || f.equals("any"))
-				bidderFlora[r] = ECOTOPE_ANY;
-			else if (f.equals("GREEN") || f.equals("green"))
-				bidderFlora[r] = ECOTOPE_GREEN;
-			else if (f.equals("NON-GREEN") || f.equals("non-green"))
-				bidderFlora[r] = ECOTOPE_NON_GREEN;
-			else	// look it up
-				for(int i = 0; i < floraNames.length; i++) {
-					if (floraNames[i] != null && floraNames[i].equals(f)) {
-						bidderFlora[r] = i;
-						break;
-					}
-				}
-		}
-		
-		// figure out which ecotopes are green
-		boolean floraGreen[] = new boolean[floraNames.length];
-		for(int i = 0; i < floraNames.length; i++) {
-			if (floraNames[i] == null || floraNames[i].equals("NONE"))
-				continue;
-			if (floraNames[i].equals("Desert") || floraNames[i].equals("Alpine"))
-				continue;
-			floraGreen[i] = true;
-		}
+		// get the ecotope(s) acceptable to each bidding rule
+		table.ecotopes(map.floraNames);
 		
 		// initialize the points to be unpopulated
 		for(int i = 0; i < points.length; i++)
 			if (selected[i])
 				resources[i] = NONE;
 
+		// per-point winning bids, and the order in which to award them
+		bestRule = new int[points.length];
+		bestBid = new double[points.length];
+		int wins[] = new int[points.length];		// points w/winning bids
+		int ties[] = new int[points.length];		// tie-break rank of each
+		PointHeap awards = new PointHeap(points.length);
+
 		// sub-types bid for mesh points in specified order
 		for(int pass = firstPass; pass <= lastPass; pass++) {
 			// see if there are any under-quota rules in this class
@@ -224,108 +194,148 @@ public class Placement {
 				continue;
 				
 			// collect bids for every point in the range
-			PointBid thisBid;
-			PointBid winners = null;
-			for(int i = 0; i < points.length; i++) {
-				// make sure it is in selected area
-				if (!selected[i])
-					continue;
+			//	(points are independent, but debug output is sequential)
+			final int thisPass = pass;
+			if (parms.debug_level >= PLACEMENT_DEBUG || parms.rule_debug != null) {
+				for(int i = 0; i < points.length; i++)
+					collectBids(i, thisPass);
+			} else
+				Parallel.forBands(points.length, MIN_BAND, (first, last) -> {
+					for(int i = first; i < last; i++)
+						collectBids(i, thisPass);
+				});
 
-				// make sure it is not yet occupied
-				if (resources[i] != NONE)
+			// rank the winning bids (see below), noting the bidding classes
+			boolean bidding[] = new boolean[MAX_RULES];
+			int unfilled = 0;	// bidding classes still under quota
+			int won = 0;
+			double highest = 0;	// highest bid so far
+			for(int i = 0; i < points.length; i++) {
+				if (bestRule[i] < 0)
 					continue;
-
-				// gather bidding attributes for this point
-				int alt = (int) parms.altitude(heightMap[i] - erodeMap[i]);
-				double lapse = alt * parms.lapse_rate;
-				double depth = 0;
-				if (waterLevel[i] > (heightMap[i] - erodeMap[i]))
-					depth = parms.height(waterLevel[i] - (heightMap[i] - erodeMap[i]));
-				double rain = rainMap[i];
-				double flux = fluxMap[i];
-				int flora = (int) floraMap[i];
-
-				// figure out the (potentially goosed) temperature
-				double Twinter = parms.meanWinter();
-				double Tsummer = parms.meanSummer();
-				
-				// collect all bids (within this order) for this point
-				double high_bid = -666.0;
-				int winner = -1;
-				for(int r = 0; r < numRules; r++) {
-					if (bidders[r].order != pass)
-						continue;	// not eligible to bid this round
-					if (counts[bidderClass[r]] >= quotas[bidderClass[r]])
-						continue;	// already at quota
-					
-					// floral ecotope matching is a little to complex for bid()
-					int wants = bidderFlora[r];
-					if (wants == ECOTOPE_GREEN && !floraGreen[flora])
-						continue;
-					if (wants == ECOTOPE_NON_GREEN && floraGreen[flora])
-						continue;
-					if (wants != ECOTOPE_ANY && wants != flora)
-						continue;
-										
-					double bid = bidders[r].bid(alt, depth, flux, rain, Twinter - lapse, Tsummer - lapse);
-					if (parms.debug_level >= PLACEMENT_DEBUG || parms.rule_debug != null && parms.rule_debug.equals(bidders[r].ruleName)) {
-						String msg = "   RULE " + bidders[r].ruleName + " bids " +
-									String.format("%6.2f for point %5d", bid, i) +
-									String.format(", alt=%d%s", alt, Parameters.unit_z);
-						msg += String.format(", depth=%.0f%s", depth, Parameters.unit_z);
-						msg += String.format(", flux=%f%s", flux, Parameters.unit_f);
-						msg += String.format(", rain=%f%s", rain, Parameters.unit_r);
-						msg += String.format(", temp=%.1f-%.1f%s",
-											Twinter - lapse, Tsummer - lapse, Parameters.unit_t);
-						if (bid <= 0)
-							msg += " (" + bidders[r].justification + ")";
-						System.out.println(msg);
-					}
-					if (bid <= 0)
-						continue;	// doesn't want this point
-					if (bid > high_bid) {
-						high_bid = bid;
-						winner = r;
-					}
-				}
-
-				// add the winner to our list of winning bids
-				if (winner >= 0) {
-					int type = bidderClass[winner];
-					int id = bidders[winner].id;
-					thisBid = new PointBid(i, type, id, high_bid);
-
-					if (winners == null)
-						winners = thisBid;		// first bid
-					else if (winners.bid < thisBid.bid) {
-						thisBid.next = winners;	// highest bid
-						winners = thisBid;
-					} else {					// insert it after the last bigger-than-this
-						PointBid prev = winners;
-						while(prev.next != null && prev.next.bid > thisBid.bid)
-							prev = prev.next;
-						thisBid.next = prev.next;
-						prev.next = thisBid;
-					}
+				double bid = bestBid[i];
+				ties[won] = (won == 0 || highest < bid) ? 1 : (highest > bid) ? 0 : 2;
+				wins[won++] = i;
+				if (won == 1 || bid > highest)
+					highest = bid;
+				int type = bidderClass[bestRule[i]];
+				if (!bidding[type]) {
+					bidding[type] = true;
+					unfilled++;
 				}
 			}
-
-			// award tiles in bid-order
+			
+			/*
+			 * award points in descending bid order.  Equal bids are
+			 * awarded in the same order as when the winners were kept
+			 * in a sorted list (where each new bid was inserted in front
+			 * of any equal bids, but behind the first bid in the list):
+			 *	0: bids made after a higher bid (in reverse point order)
+			 *	1: the first bid of that amount (if nothing was higher)
+			 *	2: the rest of those (in reverse point order)
+			 * The heap breaks ties in the order added, so we add the
+			 * points in that order.
+			 */
+			for(int rank = 0; rank <= 2; rank++)
+				for(int w = won - 1; w >= 0; w--)
+					if (ties[w] == rank)
+						awards.add(wins[w], -bestBid[wins[w]]);
+			
+			// once every bidding class is at quota, we are done
 			int placed = 0;
-			thisBid = winners;
-			while(thisBid != null) {
+			while(unfilled > 0 && !awards.isEmpty()) {
+				int i = awards.pop();
+				int type = bidderClass[bestRule[i]];
 				// point must not yet be awarded, bidder must be under quota
-				if (resources[thisBid.index] == NONE && counts[thisBid.type] < quotas[thisBid.type]) {
-					resources[thisBid.index] = thisBid.id;
-					counts[thisBid.type] += 1;
+				if (resources[i] == NONE && counts[type] < quotas[type]) {
+					resources[i] = bidders[bestRule[i]].id;
+					counts[type] += 1;
 					placed += 1;
+					if (counts[type] >= quotas[type])
+						unfilled--;
 				}
-				thisBid = thisBid.next;
 			}
+			awards.clear();
 			
 			if (parms.debug_level >= PLACEMENT_DEBUG)
 				System.out.println("... pass " + pass + " placed " + placed + " from " + eligible);
 		}
 		return counts;
 	}
+
+	/**
+	 * collect all of the bids (in one pass) for a point, noting the winner
+	 *
+	 *	(this only updates the per point winner, so it can be run for many
+	 *	 points in parallel)
+	 *
+	 * @param i ... index of the point
+	 * @param pass ... bidding pass
+	 */
+	private void collectBids(int i, int pass) {
+		bestRule[i] = -1;
+		
+		// make sure it is in selected area
+		if (!selected[i])
+			return;
+
+		// make sure it is not yet occupied
+		if (resources[i] != NONE)
+			return;
+
+		// gather bidding attributes for this point
+		int alt = (int) parms.altitude(heightMap[i] - erodeMap[i]);
+		double lapse = alt * parms.lapse_rate;
+		double depth = 0;
+		if (waterLevel[i] > (heightMap[i] - erodeMap[i]))
+			depth = parms.height(waterLevel[i] - (heightMap[i] - erodeMap[i]));
+		double rain = rainMap[i];
+		double flux = fluxMap[i];
+		int flora = (int) floraMap[i];
+
+		// figure out the (potentially goosed) temperature
+		double Twinter = parms.meanWinter();
+		double Tsummer = parms.meanSummer();
+		
+		// collect all bids (within this order) for this point
+		double high_bid = -666.0;
+		int winner = -1;
+		for(int r = 0; r < numRules; r++) {
+			if (table.order[r] != pass)
+				continue;	// not eligible to bid this round
+			if (counts[bidderClass[r]] >= quotas[bidderClass[r]])
+				continue;	// already at quota
+			
+			// floral ecotope matching is a little to complex for bid()
+			if (!table.eligible(r, flora))
+				continue;
+
+			double bid = table.bid(r, alt, depth, flux, rain, Twinter - lapse, Tsummer - lapse);
+			if (parms.debug_level >= PLACEMENT_DEBUG || parms.rule_debug != null && parms.rule_debug.equals(bidders[r].ruleName)) {
+				String msg = "   RULE " + bidders[r].ruleName + " bids " +
+							String.format("%6.2f for point %5d", bid, i) +
+							String.format(", alt=%d%s", alt, Parameters.unit_z);
+				msg += String.format(", depth=%.0f%s", depth, Parameters.unit_z);
+				msg += String.format(", flux=%f%s", flux, Parameters.unit_f);
+				msg += String.format(", rain=%f%s", rain, Parameters.unit_r);
+				msg += String.format(", temp=%.1f-%.1f%s",
+									Twinter - lapse, Tsummer - lapse, Parameters.unit_t);
+				if (bid <= 0) {
+					bidders[r].bid(alt, depth, flux, rain, Twinter - lapse, Tsummer - lapse);
+					msg += " (" + bidders[r].justification + ")";
+				}
+				System.out.println(msg);
+			}
+			if (bid <= 0)
+				continue;	// doesn't want this point
+			if (bid > high_bid) {
+				high_bid = bid;
+				winner = r;
+			}
+		}
+
+		// note the winner for this point
+		bestRule[i] = winner;
+		bestBid[i] = high_bid;
+	}
 }
@@ -0,0 +1,182 @@
+package worldBuilder;
+/**
+ * an indexed binary min-heap of MeshPoint indices, ordered by a
+ * (double) key, and supporting decrease-key.
+ *
+ * Points with equal keys come out in the order in which they were
+ * (last) added/decreased, which makes the ordering deterministic.
+ *
+ * All state is kept in primitive arrays (indexed by heap slot or by
+ * point), so adding and removing points allocates nothing.
+ */
+public class PointHeap {
+
+	private int[] heap;			// point in each heap slot
+	private double[] keys;		// key of each heap slot
+	private long[] seqs;		// sequence number of each heap slot
+	private int[] slot;			// heap slot of each point (or -1)
+	private int size;			// number of points in the heap
+	private long sequence;		// next sequence number
+
+	/**
+	 * allocate a heap for a given number of points
+	 * @param points ... number of (indexable) points
+	 */
+	public PointHeap(int points) {
+		heap = new int[points];
+		keys = new double[points];
+		seqs = new long[points];
+		slot = new int[points];
+		for(int i = 0; i < points; i++)
+			slot[i] = -1;
+		size = 0;
+		sequence = 0;
+	}
+
+	/**
+	 * @return whether or not the heap is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return number of points in the heap
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param point ... index of the point of interest
+	 * @return whether or not that point is in the heap
+	 */
+	public boolean contains(int point) {
+		return slot[point] >= 0;
+	}
+
+	/**
+	 * @param point ... index of a point in the heap
+	 * @return the key of that point
+	 */
+	public double key(int point) {
+		return keys[slot[point]];
+	}
+
+	/**
+	 * @return the key of the lowest point in the heap
+	 */
+	public double minKey() {
+		return keys[0];
+	}
+
+	/**
+	 * add a new point to the heap
+	 * @param point ... index of the point to be added
+	 * @param key ... value by which it is to be ordered
+	 */
+	public void add(int point, double key) {
+		int s = size++;
+		heap[s] = point;
+		keys[s] = key;
+		seqs[s] = sequence++;
+		slot[point] = s;
+		up(s);
+	}
+
+	/**
+	 * lower the key of a point that is already in the heap
+	 * @param point ... index of the point to be updated
+	 * @param key ... new (lower) value for that point
+	 */
+	public void decrease(int point, double key) {
+		int s = slot[point];
+		keys[s] = key;
+		seqs[s] = sequence++;
+		up(s);
+	}
+
+	/**
+	 * remove the point with the lowest key from the heap
+	 * @return index of that point
+	 */
+	public int pop() {
+		int point = heap[0];
+		slot[point] = -1;
+		size--;
+		if (size > 0) {
+			move(size, 0);
+			down(0);
+		}
+		return point;
+	}
+
+	/**
+	 * empty the heap (so that it can be reused)
+	 */
+	public void clear() {
+		for(int s = 0; s < size; s++)
+			slot[heap[s]] = -1;
+		size = 0;
+	}
+
+	/**
+	 * does heap slot a belong before heap slot b
+	 */
+	private boolean before(int a, int b) {
+		if (keys[a] != keys[b])
+			return keys[a] < keys[b];
+		return seqs[a] < seqs[b];
+	}
+
+	/**
+	 * copy the contents of one heap slot to another
+	 */
+	private void move(int from, int to) {
+		heap[to] = heap[from];
+		keys[to] = keys[from];
+		seqs[to] = seqs[from];
+		slot[heap[to]] = to;
+	}
+
+	/**
+	 * exchange the contents of two heap slots
+	 */
+	private void swap(int a, int b) {
+		int p = heap[a]; heap[a] = heap[b]; heap[b] = p;
+		double k = keys[a]; keys[a] = keys[b]; keys[b] = k;
+		long q = seqs[a]; seqs[a] = seqs[b]; seqs[b] = q;
+		slot[heap[a]] = a;
+		slot[heap[b]] = b;
+	}
+
+	/**
+	 * move a slot up until its parent is not after it
+	 */
+	private void up(int s) {
+		while(s > 0) {
+			int parent = (s - 1) / 2;
+			if (!before(s, parent))
+				break;
+			swap(s, parent);
+			s = parent;
+		}
+	}
+
+	/**
+	 * move a slot down until neither child is before it
+	 */
+	private void down(int s) {
+		while(true) {
+			int child = (2 * s) + 1;
+			if (child >= size)
+				break;
+			if (child + 1 < size && before(child + 1, child))
+				child++;
+			if (!before(child, s))
+				break;
+			swap(s, child);
+			s = child;
+		}
+	}
+}
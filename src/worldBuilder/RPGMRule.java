@@ -134,6 +134,21 @@ public class RPGMRule extends ResourceRule {
 		System.err.println(ruleFile + ": Unrecognized attribute: (" + name + "=" + value + ")");
 	}
 	
+	/**
+	 * @return the RPGMaker tile set (for the entire rule set)
+	 */
+	protected int ruleSetValue() {
+		return tileSet;
+	}
+	
+	/**
+	 * restore the RPGMaker tile set when a cached rule set is re-used
+	 * @param value ... RPGMaker tile set (when the rule set was parsed)
+	 */
+	protected void ruleSetValue(int value) {
+		tileSet = value;
+	}
+	
 	/**
 	 * set an extended attribute (min/max double value)
 	 * @param name of the attribute being set
@@ -1,7 +1,6 @@
 package worldBuilder;
 
 import java.awt.Color;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ListIterator;
 import java.util.Random;
@@ -14,10 +13,7 @@ public class RPGMTiler implements Exporter {
 	private static final int MAXRULES = 40;
 	private static final int SPRITES_PER_ROW = 8;
 	private static final int EXPORT_DEBUG = 3;
-
-	private static final int ECOTOPE_ANY = -1;
-	private static final int ECOTOPE_GREEN = -2;
-	private static final int ECOTOPE_NON_GREEN = -3;	// NONE, Desert, Alpine
+	private static final int MIN_BAND = 4;		// rows per parallel task
 
 	
 	// preview colors
@@ -56,12 +52,18 @@ public class RPGMTiler implements Exporter {
 	public double[][] erode;
 	/** per point water depth (Z units)	*/
 	public double[][] depths;
+	private DerivativeField field;	// slopes of the height/erosion maps
 	/** per point soil type	*/
 	public double[][] soil;
 	/** per point terrain level	*/
 	public int[][] levels;
 	/** per point flora type	*/
 	public int[][] floraTypes;
+
+	// per point bidding features (computed once per export)
+	private int[][] tileAlt;		// per point altitude (M)
+	private double[][] tileDepth;	// per point water depth (M)
+	private int[][] tileTerrain;	// per point TerrainType (including SLOPE)
 	/** mapping from levels to TerrainTypes	*/
 	public int[] typeMap;
 	/** map from ecotope types to names	*/
@@ -85,10 +87,11 @@ public class RPGMTiler implements Exporter {
 	private RPGMRule bidders[];		// list of bidders for the current level
 	private	int numRules = 0;		// number of rules eleigible to bid
 
-	private int bidder_ecotope[];	// (integer) ectotope for each bidder
+	private RuleTable table;		// compiled rules for this tile-set
+	private int bidder_index[];		// (table) rule number for each bidder
 	private double bidder_quota[];	// (double) max coverage for each bidder
-	private boolean[] floraGreen;	// which ecotope classes support grass
 	private Random random;			// random number generator
+	private boolean tileStreams;	// per-tile random number streams
 
 	/**
 	 * create a new output writer
@@ -105,6 +108,7 @@ public class RPGMTiler implements Exporter {
 		// read in the rules for this tile-set
 		RPGMRule x = new RPGMRule("dummy");
 		x.loadRules(tileRules);
+		table = new RuleTable(ResourceRule.rules, 0);
 
 		// determine whether or not we are rendering levels
 		useSLOPE = false;
@@ -164,6 +168,18 @@ public class RPGMTiler implements Exporter {
 		floraQuotas[FLORA_TREES] = trees;
 	}
 	
+	/**
+	 * give every tile its own random number stream, so that levels
+	 * with quota-limited bidders can also be tiled in parallel
+	 * @param perTile ... per-tile (rather than per-level) streams
+	 *
+	 * Note: quota-limited bidders then place a different (but equally
+	 *		 distributed) set of tiles than the default per-level stream.
+	 */
+	public void tileStreams(boolean perTile) {
+		this.tileStreams = perTile;
+	}
+	
 	/**
 	 * set parameters that define the altitude->level mapping
 	 * @param aboveGround	number of above-GROUND levels
@@ -352,9 +368,12 @@ public class RPGMTiler implements Exporter {
 		// we probably have to create a tile-to-level map
 		if (this.levels == null)
 			levelMap();
+
+		// every level's bidding uses the same per-tile attributes
+		features();
 		
 		try {
-			FileWriter output = new FileWriter(filename);
+			FastWriter output = new FastWriter(filename);
 			RPGMwriter w = new RPGMwriter(output);
 			w.typeMap(typeMap);
 			w.prologue(y_points,  x_points,  RPGMRule.tileSet);
@@ -451,21 +470,48 @@ public class RPGMTiler implements Exporter {
 				")", map, 0);
 	}
 
+	/**
+	 * compute the per-tile attributes on which every level's rules bid
+	 *
+	 *	(so that tiles() and stamps() do not have to convert every
+	 *	 tile's altitude and depth, and re-derive its terrain type,
+	 *	 for every rule on every level)
+	 */
+	private void features() {
+		tileAlt = new int[y_points][x_points];
+		tileDepth = new double[y_points][x_points];
+		tileTerrain = new int[y_points][x_points];
+		for(int i = 0; i < y_points; i++)
+			for(int j = 0; j < x_points; j++) {
+				tileAlt[i][j] = (int) parms.altitude(heights[i][j] - erode[i][j]);
+				tileDepth[i][j] = parms.height(depths[i][j]);
+				int terrain = typeMap[levels[i][j]];
+				if (useSLOPE &&										// SLOPE rules enabled
+						!TerrainType.isWater(terrain) &&			// is not water
+						i + 1 < y_points &&							// must have a south neighbor
+						levels[i][j] > levels[i+1][j] &&			// on a lower level
+						!TerrainType.isWater(typeMap[levels[i+1][j]]) // that is not water
+						)
+					terrain = TerrainType.SLOPE;	// for Outside slope is a different TerrainType
+				tileTerrain[i][j] = terrain;
+			}
+	}
+
 	/**
 	 * search the loaded rules for a list of bidders eligible for this level
 	 *
-	 *	initialize the list of bidders and the ecotope for each
+	 *	initialize the list of bidders and the (table) rule for each
 	 */
 	void get_bidders(int level) {
 
 		bidders = new RPGMRule[MAXRULES];
-		bidder_ecotope = new int[MAXRULES];
+		bidder_index = new int[MAXRULES];
 		bidder_quota = new double[MAXRULES];
 		numRules = 0;
 
 		// enumerate all eligible bidding rules
-		for( ListIterator<ResourceRule> it = ResourceRule.iterator(); it.hasNext();) {
-			RPGMRule r = (RPGMRule) it.next();
+		for(int t = 0; t < table.size; t++) {
+			RPGMRule r = (RPGMRule) table.rules[t];
 			if (r.level != level)				// rule is not for this level
 				continue;
 			if (r.width > SPRITES_PER_ROW) {	// rule has impossibly wide tiles
@@ -474,23 +520,7 @@ public class RPGMTiler implements Exporter {
 			}
 			bidders[numRules] = r;
 
-			// get the numeric floral ecotope type for each competing rule
-			if (r.floraType == null)
-				bidder_ecotope[numRules] = ECOTOPE_ANY;
-			else {
-				if (r.floraType.equals("any") || r.floraType.equals("ANY"))
-					bidder_ecotope[numRules] = ECOTOPE_ANY;
-				else if (r.floraType.equals("green") || r.floraType.equals("GREEN"))
-					bidder_ecotope[numRules] = ECOTOPE_GREEN;
-				else if (r.floraType.equals("non-green") || r.floraType.equals("NON-GREEN"))
-					bidder_ecotope[numRules] = ECOTOPE_NON_GREEN;
-				else
-					for(int i = 0; i < floraNames.length; i++)
-						if (r.floraType.equals(floraNames[i])) {
-							bidder_ecotope[numRules] = i;
-							break;
-						}
-			}
+			bidder_index[numRules] = t;
 			
 			// get the tile quota for this rule's flora class
 			bidder_quota[numRules] = 1.0;
@@ -509,12 +539,13 @@ public class RPGMTiler implements Exporter {
 
 	/**
 	 * collect bids from eligible bidders, choose a winner
-	 * @param	pre-allocated bidder (it can be reused)
 	 * @param	level
 	 * @param	row
 	 * @param	col
+	 * @param	random ... random number stream for quota-limited bidders
+	 * @param	nobids ... where to report unclaimed tiles (or null to print them)
 	 */
-	RPGMRule winner(int level, int row, int col) {
+	RPGMRule winner(int level, int row, int col, Random random, StringBuilder nobids) {
 		// per point attributes for tile bidding
 		int alt = 0, terrain = 0;
 		double lapse = 0.0, depth = 0.0;
@@ -525,7 +556,9 @@ public class RPGMTiler implements Exporter {
 		RPGMRule winning_rule = null;
 		for(int b = 0; b < numRules; b++) {
 			RPGMRule r = bidders[b];
-			r.justification = "OK";
+			boolean debug = r.debug || parms.debug_level >= EXPORT_DEBUG;
+			if (debug)		// (rules are shared, so only set when serial)
+				r.justification = "OK";
 			double bid = 0;
 
 			// multi-tile rules only bid empty UL group corners
@@ -549,17 +582,10 @@ public class RPGMTiler implements Exporter {
 					
 					double thisBid = 0;
 					// collect all the attributes of this square
-					alt = (int) parms.altitude(heights[row+dy][col+dx] - erode[row+dy][col+dx]);
+					alt = tileAlt[row+dy][col+dx];
 					lapse = alt * parms.lapse_rate;
-					depth = parms.height(depths[row+dy][col+dx]);
-					terrain = typeMap[levels[row+dy][col+dx]];
-					if (useSLOPE &&												// SLOPE rules enabled
-							!TerrainType.isWater(terrain) &&					// is not water
-							row + dy + 1 < y_points &&							// must have a south neighbor
-							levels[row+dy][col+dx] > levels[row+dy+1][col+dx] &&// on a lower level
-							!TerrainType.isWater(typeMap[levels[row+dy+1][col+dx]]) // that is not water
-							)
-						terrain = TerrainType.SLOPE;	// for Outside slope is a different TerrainType
+					depth = tileDepth[row+dy][col+dx];
+					terrain = tileTerrain[row+dy][col+dx];
 
 					// rule/bid debugging will want to know all attributes of this tile
 					if (parms.debug_level >= EXPORT_DEBUG)
@@ -572,7 +598,8 @@ public class RPGMTiler implements Exporter {
 
 					// does our terrain type match the rule
 					if (r.wrongTerrain(terrain)) {
-						r.justification = "terain mismatch";
+						if (debug)
+							r.justification = "terain mismatch";
 						refused++;
 						// debug: multi-tile mismatches part way through
 						if (dx + dy > 0 && parms.debug_level >= EXPORT_DEBUG)
@@ -580,8 +607,9 @@ public class RPGMTiler implements Exporter {
 						continue;
 					}
 					// does our ecotope match the rule
-					if (wrongEcotope(bidder_ecotope[b], floraTypes[row][col])) {
-						r.justification = "ecotope mismatch" + 
+					if (!table.eligible(bidder_index[b], floraTypes[row][col])) {
+						if (debug)
+							r.justification = "ecotope mismatch" + 
 								" (" + r.floraType + "!=" + floraNames[floraTypes[row+dy][col+dx]] + ")";
 						refused++;
 						// debug: multi-tile mismatches part way through
@@ -589,11 +617,13 @@ public class RPGMTiler implements Exporter {
 							System.out.println(tile_info + " ... " + r.ruleName + " - ECOTOPE MISMATCH");
 						continue;
 					}
-					else	// if bid fails, it will add its own justification
-						thisBid = r.bid(alt, depth, flux, rain, Tmean - lapse, Tmean - lapse);
+					else
+						thisBid = table.bid(bidder_index[b], alt, depth, flux, rain, Tmean - lapse, Tmean - lapse);
 
 					// if full debug is enabled, log every bid for every tile
-					if (r.debug || parms.debug_level >= EXPORT_DEBUG) {
+					if (debug) {
+						// if bid fails, it will add its own justification
+						r.bid(alt, depth, flux, rain, Tmean - lapse, Tmean - lapse);
 						System.out.println(tile_info + " ... " + r.ruleName + 
 									" bids " + thisBid + " (" + r.justification + ")");
 					}
@@ -622,12 +652,16 @@ public class RPGMTiler implements Exporter {
 		// every level 1 point should be claimed by some rule
 		if (level == 1) {
 			// there seems to be a hole in the rules
-			System.err.println("NOBID l" + level + "[" + row + "," + col + "]: " +
+			String msg = "NOBID l" + level + "[" + row + "," + col + "]: " +
 					" terrain=" + TerrainType.terrainType(terrain) +
 					", flora=" + floraNames[floraTypes[row][col]] + 
 					", alt=" + alt +
 					String.format(", depth=%.2f", depth) + 
-					String.format(", temp=%.1f-%.1f", Twinter - lapse, Tsummer - lapse));
+					String.format(", temp=%.1f-%.1f", Twinter - lapse, Tsummer - lapse);
+			if (nobids == null)
+				System.err.println(msg);
+			else
+				nobids.append(msg).append('\n');
 		}
 
 		return null;
@@ -640,23 +674,62 @@ public class RPGMTiler implements Exporter {
 	 * @param level .. what level are we filling
 	 */
 	void tiles(int[][] grid, int level) {
+		// assemble a list of bidders (and their ecotopes) for this level
+		get_bidders(level);
+
+		// quota-limited bidders draw from a single (per-level) random
+		//	number stream, in row-major order, unless every tile has its
+		//	own stream.  Otherwise rows can be tiled in parallel (but
+		//	debug output is sequential).
+		boolean serial = parms.debug_level >= EXPORT_DEBUG;
+		for(int b = 0; b < numRules; b++)
+			if (bidders[b].debug || (bidder_quota[b] < 1.0 && !tileStreams))
+				serial = true;
+		if (serial) {
+			random.setSeed(level * y_points * x_points);
+			tileRows(grid, level, 0, y_points, tileStreams ? null : random, null);
+			return;
+		}
+		
+		// unclaimed tiles are reported (in order) after all rows are done
+		String[] nobids = new String[y_points];
+		Parallel.forBands(y_points, MIN_BAND, (first, last) -> {
+			StringBuilder complaints = new StringBuilder();
+			tileRows(grid, level, first, last, null, complaints);
+			if (complaints.length() > 0)
+				nobids[first] = complaints.toString();
+		});
+		for(int i = 0; i < y_points; i++)
+			if (nobids[i] != null)
+				System.err.print(nobids[i]);
+	}
+
+	/**
+	 * fill in the base tiles for a band of rows
+	 * 
+	 * @param grid ... array to be filled in
+	 * @param level .. what level are we filling
+	 * @param first ... first row to be filled in
+	 * @param last ... (exclusive) last row to be filled in
+	 * @param shared ... per-level random number stream (or null for per-tile)
+	 * @param nobids ... where to report unclaimed tiles (or null to print them)
+	 */
+	private void tileRows(int[][] grid, int level, int first, int last,
+						  Random shared, StringBuilder nobids) {
 		// level 5 shadow masks
 		final int SHADOW_TL = 1;
 		// final int SHADOW_TR = 2;
 		final int SHADOW_BL = 4;
 		// final int SHADOW_BR = 8;
 
-		// assemble a list of bidders (and their ecotopes) for this level
-		get_bidders(level);
-		
-		// reinitialize the random number generator
-		random.setSeed(level * y_points * x_points);
-
-		// assign a tile to every point on this level
-		for (int i = 0; i < y_points; i++)
+		// assign a tile to every point in these rows
+		Random stream = (shared != null) ? shared : new Random();
+		for (int i = first; i < last; i++)
 			for (int j = 0; j < x_points; j++) {
 				grid[i][j] = 0;		// start out empty
-				RPGMRule r = winner(level, i, j);
+				if (shared == null)
+					stream.setSeed(tileSeed(level, i, j));
+				RPGMRule r = winner(level, i, j, stream, nobids);
 				if (r != null)
 					grid[i][j] = r.baseTile;
 				else if (useSLOPE && level == 5) {
@@ -672,6 +745,24 @@ public class RPGMTiler implements Exporter {
 			}
 	}
 
+	/**
+	 * random number seed for one tile on one level
+	 *
+	 *	(a SplitMix64 hash of the tile's position, so that the
+	 *	 streams of neighboring tiles are not correlated)
+	 * @param level ... level being filled in
+	 * @param row ... tile row
+	 * @param col ... tile column
+	 * @return seed for that tile's random number stream
+	 */
+	private long tileSeed(int level, int row, int col) {
+		long z = (((long) level * y_points + row) * x_points) + col;
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
 	/**
 	 * fill in the array of base tiles with multi-tile stamps
 	 * 
@@ -699,7 +790,7 @@ public class RPGMTiler implements Exporter {
 					continue;
 
 				// if a rule wants the whole group ...
-				RPGMRule r = winner(level, i, j);
+				RPGMRule r = winner(level, i, j, random, null);
 				if (r != null) {
 					for(int dy = 0; dy < r.height; dy++)
 						for(int dx = 0; dx < r.width; dx++)
@@ -766,22 +857,12 @@ public class RPGMTiler implements Exporter {
 	}
 
 	/**
-	 * determine whether or not a tile ecotope matches a rule
-	 * @param rule_ecotope
-	 * @param tile_ecotope
-	 * @return
+	 * @return terrain derivatives of the up-loaded height/erosion maps
 	 */
-	boolean wrongEcotope(int rule_ecotope, int tile_ecotope) {
-		switch(rule_ecotope) {
-		case ECOTOPE_ANY:
-			return false;
-		case ECOTOPE_GREEN:
-			return !floraGreen[tile_ecotope];
-		case ECOTOPE_NON_GREEN:
-			return floraGreen[tile_ecotope];
-		default:
-			return rule_ecotope != tile_ecotope;
-		}
+	public DerivativeField derivatives() {
+		if (field == null)
+			field = DerivativeField.get(heights, erode);
+		return field;
 	}
 
 	/**
@@ -791,13 +872,7 @@ public class RPGMTiler implements Exporter {
 	 * @return aggregate slope (dZdTILE) of that tile
 	 */
 	public double slope(int row, int col) {
-		double z0 = heights[row][col] - erode[row][col];
-		double zx1 = (col > 0) ? heights[row][col-1] - erode[row][col-1] :
-			heights[row][col+1] - erode[row][col+1];
-		double zy1 = (row > 0) ? heights[row-1][col] - erode[row-1][col] :
-			heights[row+1][col] - erode[row+1][col];
-		double dz = Math.sqrt((z0-zx1)*(z0-zx1) + (z0-zy1)*(z0-zy1));
-		return Math.abs(parms.altitude(dz) / tile_size);
+		return Math.abs(parms.altitude(derivatives().gradient[row][col]) / tile_size);
 	}
 
 	/**
@@ -807,11 +882,7 @@ public class RPGMTiler implements Exporter {
 	 * @return slope upwards to the east
 	 */
 	public double dZdX(int row, int col) {
-		if (col == x_points - 1)
-			col--;
-		double dz = (heights[row][col+1] - erode[row][col+1]) - (heights[row][col] - erode[row][col]) ;
-		double dx = tile_size;
-		return dz/dx;
+		return derivatives().dZdX[row][col] / tile_size;
 	}
 
 	/**
@@ -821,11 +892,7 @@ public class RPGMTiler implements Exporter {
 	 * @return slope upwards to the south
 	 */
 	public double dZdY(int row, int col) {
-		if (row == y_points - 1)
-			row--;
-		double dz = (heights[row+1][col] - erode[row+1][col]) - (heights[row][col] - erode[row][col]) ;
-		double dy = tile_size;
-		return dz/dy;
+		return derivatives().dZdY[row][col] / tile_size;
 	}
 
 	/**
@@ -835,18 +902,9 @@ public class RPGMTiler implements Exporter {
 	 * @return compass orientation (0-359) of face
 	 */
 	public double direction(int row, int col) {
-		double dzdy = dZdY(row, col);
-		double dzdx = dZdX(row, col);
-		double theta = Math.atan(-dzdx/dzdy) * 180 /Math.PI;
-		if (dzdy < 0)
-			return theta + 180;
-		if (dzdx > 0)
-			return theta + 360;
-		return theta;
+		return derivatives().aspect[row][col];
 	}
 
-
-
 	/**
 	 * Set the size of a single tile
 	 * @param meters real-world width of a tile
@@ -883,6 +941,7 @@ public class RPGMTiler implements Exporter {
 	 */
 	public void heightMap(double[][] heights) {
 		this.heights = heights;
+		this.field = null;
 	}
 
 	/**
@@ -892,6 +951,7 @@ public class RPGMTiler implements Exporter {
 	 */
 	public void erodeMap(double[][] erode) {
 		this.erode = erode;
+		this.field = null;
 	}
 
 	/**
@@ -931,17 +991,9 @@ public class RPGMTiler implements Exporter {
 			for(int x = 0; x < flora[0].length; x++)
 				floraTypes[y][x] = (int) flora[y][x];
 
-		// figure out which ecotope types are green
+		// figure out which ecotope types each rule accepts
 		this.floraNames = names;
-		floraGreen = new boolean[names.length];
-		for(int i = 0; i < names.length; i++) {
-			String ecotope = names[i];
-			if (ecotope == null || ecotope.equals("NONE"))
-				continue;
-			if (ecotope.equals("Desert") || ecotope.equals("Alpine"))
-				continue;
-			floraGreen[i] = true;
-		}
+		table.ecotopes(names);
 	}
 	
 	/**
@@ -342,6 +342,7 @@ public class RPGMexport extends ExportBase implements ActionListener, ChangeList
 			double trees = 1.0 - (flora_3.getUpperValue()/100.0);
 			double brush = (flora_3.getUpperValue() - flora_3.getValue())/100.0;
 			tiler.floraQuotas(1.0, brush, trees);
+			tiler.tileStreams(parms.tiling == Parameters.PER_TILE);
 			export(tiler);
 			
 			exported = true;
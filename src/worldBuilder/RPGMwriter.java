@@ -1,6 +1,5 @@
 package worldBuilder;
 
-import java.io.FileWriter;
 import java.io.IOException;
 
 /**
@@ -8,7 +7,7 @@ import java.io.IOException;
  */
 public class RPGMwriter {
 
-	private FileWriter out;	
+	private FastWriter out;	
 	private int numRows;
 	private int numCols;
 	private int[] typeMap;
@@ -18,7 +17,7 @@ public class RPGMwriter {
 	 * @param outfile open output file
 	 * @param rules tile selection rules to be used
 	 */
-	public RPGMwriter(FileWriter outfile) {
+	public RPGMwriter(FastWriter outfile) {
 		out = outfile;
 		typeMap = null;
 	}
@@ -72,7 +71,7 @@ public class RPGMwriter {
 	public void writeTable(int[][] tiles, boolean last) throws IOException {
 		for(int i = 0; i < numRows; i++) {
 			for(int j = 0; j < numCols; j++) {
-				out.write(String.format("%4d", (tiles == null) ? 0 : tiles[i][j]));
+				out.print((tiles == null) ? 0 : tiles[i][j], 4);
 				if (!last || i < numRows - 1 || j < numCols - 1)
 					out.write(",");
 			}
@@ -96,7 +95,8 @@ public class RPGMwriter {
 				int v = (baseTiles == null) ? 0 : baseTiles[i][j];
 				if (v != 0)
 					v += auto_tile_offset(baseTiles, levels, i, j);
-				out.write(String.format("%4d,", v));
+				out.print(v, 4);
+				out.write(",");
 			}
 			out.write("\n");
 		}
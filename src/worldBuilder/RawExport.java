@@ -53,7 +53,8 @@ public class RawExport extends ExportBase implements ActionListener {
 			exported = false;
 			newSelection = false;
 		}
-		if (!exported) {
+		// previews need the complete maps
+		if (!exported && e.getSource() != accept) {
 			export(exporter);
 			exported = true;
 		}
@@ -67,7 +68,10 @@ public class RawExport extends ExportBase implements ActionListener {
 			int retval = c.showSaveDialog(this);
 			if (retval == JFileChooser.APPROVE_OPTION) {
 				File chosen = c.getSelectedFile();
-				exporter.writeFile(chosen.getPath());
+				if (exported)
+					exporter.writeFile(chosen.getPath());
+				else	// write it out a band at a time
+					export(exporter, chosen.getPath());
 				
 				// update the defaults
 				parms.map_name = chosen.getName();
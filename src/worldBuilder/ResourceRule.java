@@ -2,11 +2,15 @@ package worldBuilder;
 
 import java.awt.Color;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.ListIterator;
 
 import javax.json.Json;
@@ -25,7 +29,10 @@ public class ResourceRule {
 	/** list of all ingested rules	*/
 	public static String ruleFile;
 	public static String ruleset;
-	protected static LinkedList<ResourceRule> rules;
+	protected static List<ResourceRule> rules;
+
+	/** previously parsed rule sets (by sub-class and file name)	*/
+	private static HashMap<String, RuleSet> cache = new HashMap<String, RuleSet>();
 	
 	/** name of this rule and its class	*/
 	public String ruleName, className;
@@ -130,11 +137,84 @@ public class ResourceRule {
 		System.err.println(ruleFile + ": Unrecognized attribute (" + name + "." + limit + "=" + value);
 	}
 	
+	/**
+	 * a parsed (and unmodifiable) set of rules, and the file it came from
+	 */
+	private static class RuleSet {
+		long modified;				// file modification time (when parsed)
+		String ruleFile;			// ruleFile (after parsing)
+		String ruleset;				// ruleset name (after parsing)
+		int setting;				// sub-class per rule set value
+		List<ResourceRule> rules;	// the parsed rules
+	}
+	
+	/**
+	 * @return any (sub-class specific) value that parsing a rule file
+	 *		   sets for the entire rule set (e.g. the RPGMaker tile set)
+	 */
+	protected int ruleSetValue() {
+		return 0;
+	}
+	
+	/**
+	 * restore a (sub-class specific) per rule set value when a
+	 * previously parsed rule set is re-used
+	 * @param value ... value returned by ruleSetValue after parsing
+	 */
+	protected void ruleSetValue(int value) {
+	}
+
 	/**
 	 * load in resource placement rules
 	 * @param file name of file to be read
+	 *
+	 * 	a rule set that has already been parsed (by this sub-class) is
+	 * 	reused, unless the file has been modified since it was parsed.
+	 * 	Shared rule lists are unmodifiable, and must not be changed.
 	 */
 	public void loadRules(String file) {
+		// built-in rules never change, but files can be edited
+		String filename = (file.charAt(0) != '/') ? DEFAULT_CONFIG + "/" + file : file;
+		long modified = (file.charAt(0) != '/') ? 0 : new File(filename).lastModified();
+		String key = getClass().getName() + ":" + filename;
+
+		synchronized(cache) {
+			RuleSet set = cache.get(key);
+			if (set == null || set.modified != modified) {
+				parseRules(file);
+				set = null;
+				if (rules.size() > 0) {
+					set = new RuleSet();
+					set.modified = modified;
+					set.ruleFile = ruleFile;
+					set.ruleset = ruleset;
+					set.setting = ruleSetValue();
+					set.rules = Collections.unmodifiableList(rules);
+					cache.put(key, set);
+				}
+			}
+			if (set != null) {
+				rules = set.rules;
+				ruleFile = set.ruleFile;
+				ruleset = set.ruleset;
+				ruleSetValue(set.setting);
+			}
+		}
+
+		// see if we have been asked for debug output
+		if (parms.debug_level >= RULE_DEBUG) {
+			System.out.println("Resource rules (" + ruleset + ") from " + filename + ":");
+			for(ListIterator<ResourceRule> it = iterator(); it.hasNext(); ) {
+				it.next().dump("    ");
+			}
+		}
+	}
+
+	/**
+	 * parse a file of resource placement rules
+	 * @param file name of file to be read
+	 */
+	private void parseRules(String file) {
 		rules = new LinkedList<ResourceRule>();
 		
 		Parameters parms = Parameters.getInstance();
@@ -411,14 +491,6 @@ public class ResourceRule {
 				break;
 			}
 		}
-		
-		// see if we have been asked for debug output
-		if (parms.debug_level >= RULE_DEBUG) {
-			System.out.println("Resource rules (" + ruleset + ") from " + filename + ":");
-			for(ListIterator<ResourceRule> it = iterator(); it.hasNext(); ) {
-				it.next().dump("    ");
-			}
-		}
 	}
 	
 	/**
@@ -258,15 +258,9 @@ public class RouteDialog extends JFrame implements ActionListener, ChangeListene
 	 * (re) draw the last-selected manual route
 	 */
 	private void manual_route() {
-		int valid = 0;
-		if (te.startFrom(last_start))
-			valid++;
-		if (te.startFrom(last_end))
-			valid++;
-		if (valid > 0) {
-			te.reset();
+		if (last_start >= 0 && last_end >= 0) {
 			set_parameters();
-			TradeRoute added = te.outwards(1, valid == 1);
+			TradeRoute added = te.route(last_start, last_end);
 			if (added != null)
 				travel_time.setText(String.format("%.1f days", added.cost));
 		}
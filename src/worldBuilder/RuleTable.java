@@ -0,0 +1,193 @@
+package worldBuilder;
+
+import java.util.List;
+
+/**
+ * a (compiled) set of ResourceRules, with the per-attribute ranges,
+ * bid styles and vigors of every rule flattened into primitive arrays,
+ * so that bidding does not have to re-derive them (rule by rule) for
+ * every point or tile.
+ *
+ * Each attribute range is stored as its mid-point and half-width (in
+ * an attribute-major array), which are exactly the values that
+ * ResourceRule.range_bid computes from the min/max, so the bids are
+ * identical to those computed by the ResourceRules themselves.
+ *
+ * Callers can add their own (per-rule) attributes after the standard
+ * ones, and ecotope eligibility is compiled into per-rule bitmasks.
+ */
+public class RuleTable {
+	/** standard attributes	*/
+	public static final int ALT = 0, DEPTH = 1, TEMP = 2, RAIN = 3, FLUX = 4, SLOPE = 5;
+	/** number of standard attributes	*/
+	public static final int ATTRIBUTES = 6;
+
+	/** number of rules in this table	*/
+	public int size;
+	/** the compiled rules	*/
+	public ResourceRule[] rules;
+	/** bidding pass for each rule	*/
+	public int[] order;
+	/** vigor (bid multiplier) for each rule	*/
+	public double[] vigor;
+
+	private double[] mid;		// range mid-point [attribute * size + rule]
+	private double[] range;		// range half-width [attribute * size + rule]
+	private boolean[] tapered;	// bid tapers away from mid-range
+	private boolean[] flexible;	// negative bids for barely out of range
+	private boolean[] anyDepth;	// rule has no depth requirement
+	private boolean[] anyFlora;	// rule accepts any ecotope
+	private long[] ecotopes;	// per rule bitmask of acceptable ecotopes
+	private int words;			// number of mask words per rule
+
+	private static final double IMPOSSIBLE = -666.0;
+
+	/**
+	 * compile a list of rules
+	 * @param rules ... list of ResourceRules
+	 * @param extra ... number of caller-defined attributes
+	 */
+	public RuleTable(List<ResourceRule> rules, int extra) {
+		size = rules.size();
+		this.rules = rules.toArray(new ResourceRule[size]);
+		order = new int[size];
+		vigor = new double[size];
+		tapered = new boolean[size];
+		flexible = new boolean[size];
+		anyDepth = new boolean[size];
+		mid = new double[(ATTRIBUTES + extra) * size];
+		range = new double[(ATTRIBUTES + extra) * size];
+
+		for(int r = 0; r < size; r++) {
+			ResourceRule rule = this.rules[r];
+			order[r] = rule.order;
+			vigor[r] = rule.vigor;
+			tapered[r] = rule.taperedBid;
+			flexible[r] = rule.flexRange;
+			anyDepth[r] = rule.minDepth == 0 && rule.maxDepth == 0;
+			setRange(ALT, r, rule.minAltitude, rule.maxAltitude);
+			setRange(DEPTH, r, rule.minDepth, rule.maxDepth);
+			setRange(TEMP, r, rule.minTemp, rule.maxTemp);
+			setRange(RAIN, r, rule.minRain, rule.maxRain);
+			setRange(FLUX, r, rule.minFlux, rule.maxFlux);
+			setRange(SLOPE, r, rule.minSlope, rule.maxSlope);
+		}
+
+		// until we know the ecotopes, every rule accepts every one
+		words = 0;
+		ecotopes = null;
+	}
+
+	/**
+	 * set the acceptable range for one attribute of one rule
+	 * @param attribute ... attribute number
+	 * @param r ... rule number
+	 * @param min ... bottom of acceptable range
+	 * @param max ... top of acceptable range
+	 */
+	public void setRange(int attribute, int r, double min, double max) {
+		int i = (attribute * size) + r;
+		mid[i] = (min + max)/2;
+		range[i] = mid[i] - min;
+	}
+
+	/**
+	 * compile the flora-type (ecotope) requirements of every rule
+	 * @param floraNames ... names of the ecotopes (by number)
+	 */
+	public void ecotopes(String[] floraNames) {
+		// figure out which ecotopes are green
+		int n = floraNames.length;
+		boolean[] green = new boolean[n];
+		for(int i = 0; i < n; i++) {
+			String ecotope = floraNames[i];
+			if (ecotope == null || ecotope.equals("NONE"))
+				continue;
+			if (ecotope.equals("Desert") || ecotope.equals("Alpine"))
+				continue;
+			green[i] = true;
+		}
+
+		words = (n + 63) / 64;
+		ecotopes = new long[size * words];
+		anyFlora = new boolean[size];
+		for(int r = 0; r < size; r++) {
+			String f = rules[r].floraType;
+			boolean any = f == null || f.equals("ANY") || f.equals("any");
+			anyFlora[r] = any;
+			boolean greens = f != null && (f.equals("GREEN") || f.equals("green"));
+			boolean others = f != null && (f.equals("NON-GREEN") || f.equals("non-green"));
+			int named = 0;		// (an unknown name is treated as ecotope 0)
+			if (!any && !greens && !others)
+				for(int i = 0; i < n; i++)
+					if (f.equals(floraNames[i])) {
+						named = i;
+						break;
+					}
+
+			for(int i = 0; i < n; i++) {
+				boolean ok = any ? true : greens ? green[i] : others ? !green[i] : i == named;
+				if (ok)
+					ecotopes[(r * words) + (i >> 6)] |= 1L << (i & 63);
+			}
+		}
+	}
+
+	/**
+	 * @param r ... rule number
+	 * @param ecotope ... ecotope (flora type) number
+	 * @return whether or not that rule can bid on that ecotope
+	 */
+	public boolean eligible(int r, int ecotope) {
+		if (ecotopes == null || anyFlora[r])
+			return true;
+		if (ecotope < 0 || (ecotope >> 6) >= words)
+			return false;
+		return ((ecotopes[(r * words) + (ecotope >> 6)] >>> (ecotope & 63)) & 1) != 0;
+	}
+
+	/**
+	 * compute how much a rule bids based on one attribute value
+	 *	(exactly as ResourceRule.range_bid)
+	 *
+	 * @param attribute ... attribute number
+	 * @param r ... rule number
+	 * @param value ... actual value
+	 * @return 0 to 1 for a favorable bid, 0 to -1 for unfavorable,
+	 *		   IMPOSSIBLE if we are outside the range
+	 */
+	public double rangeBid(int attribute, int r, double value) {
+		int i = (attribute * size) + r;
+		double half = range[i];
+		double delta = Math.abs(value - mid[i]);
+		if (delta <= half)
+			return tapered[r] ? 1.0 - delta/half : 1.0;
+		if (!flexible[r] || delta > 2*half)
+			return IMPOSSIBLE;
+		return tapered[r] ? -(delta - half)/half : -1.0;
+	}
+
+	/**
+	 * compute the bid that a rule makes for a point or tile
+	 *	(exactly as ResourceRule.bid)
+	 *
+	 * @param r			rule number
+	 * @param alt		altitude(M)
+	 * @param depth		positive above water, negative below water
+	 * @param flux		river flux (M3/s)
+	 * @param rain		rainfall (cm/y)
+	 * @param winter	low temp(degC)
+	 * @param summer	high temp(degC)
+	 *
+	 * @return			bid
+	 */
+	public double bid(int r, double alt, double depth, double flux, double rain, double winter, double summer) {
+		double score = rangeBid(ALT, r, alt);
+		if (!anyDepth[r])
+			score += (depth < 0) ? IMPOSSIBLE : rangeBid(DEPTH, r, depth);
+		score += rangeBid(TEMP, r, (winter+summer)/2);
+		score += rangeBid(RAIN, r, rain);
+		score += rangeBid(FLUX, r, flux);
+		return vigor[r] * score;
+	}
+}
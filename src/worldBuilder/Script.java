@@ -128,6 +128,22 @@ public class Script {
 						double lon = num_w_unit(tokens[2], null, tokens[1]);
 						parms.longitude = lon;
 						break;
+					case "drainage":	// {flood,escape}
+						if (tokens[2].equals("flood"))
+							parms.drainage = Parameters.PRIORITY_FLOOD;
+						else if (tokens[2].equals("escape"))
+							parms.drainage = Parameters.ESCAPE_SCAN;
+						else
+							System.err.println("set drainage: unrecognized algorithm: " + tokens[2]);
+						break;
+					case "tiling":		// {per-level,per-tile}
+						if (tokens[2].equals("per-tile"))
+							parms.tiling = Parameters.PER_TILE;
+						else if (tokens[2].equals("per-level"))
+							parms.tiling = Parameters.PER_LEVEL;
+						else
+							System.err.println("set tiling: unrecognized random streams: " + tokens[2]);
+						break;
 
 					default:
 						System.err.println("set of unrecognized parameter: " + tokens[1]);
@@ -187,12 +203,14 @@ public class Script {
 						rules_file = (tokens[5] != null) ? tokens[5] : parms.exportRules.get(RPGMexport.OW_TILES);
 						RPGMTiler tiler = new RPGMTiler(rules_file, width, height);
 						tiler.floraQuotas(1.0, 0.3, 0.3);	// 30% brush, 30% trees, rest grass
+						tiler.tileStreams(parms.tiling == Parameters.PER_TILE);
 						exporter = tiler;
 						break;
 					case "outside":
 						rules_file = (tokens[5] != null) ? tokens[5] : parms.exportRules.get(RPGMexport.OUT_TILES);
 						tiler = new RPGMTiler(rules_file, width, height);
 						tiler.floraQuotas(1.0, 0.3, 0.3);	// 30% brush, 30% trees, rest grass
+						tiler.tileStreams(parms.tiling == Parameters.PER_TILE);
 						tiler.highlandLevels(5);			// PIT/GROUND/5xHILL
 						exporter = tiler;
 						break;
@@ -213,8 +231,12 @@ public class Script {
 						ExportEngine e = new ExportEngine(map, xy.x, xy.y, box_width, box_height);
 						double meters = parms.km(tilesz) * 1000;
 						e.tile_size((int) meters);
-						e.export(exporter);
-						exporter.writeFile(tokens[2]);
+						if (exporter instanceof StreamingExporter)
+							e.export((StreamingExporter) exporter, tokens[2]);
+						else {
+							e.export(exporter);
+							exporter.writeFile(tokens[2]);
+						}
 					}
 				}
 				break;
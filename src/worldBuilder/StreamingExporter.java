@@ -0,0 +1,36 @@
+package worldBuilder;
+
+/**
+ * an Exporter that can write out a map one band of rows at a time
+ * (rather than from a complete set of up-loaded maps), so that very
+ * large exports never have to be held in memory all at once.
+ *
+ * The ExportEngine first calls startFile, and then, for each band,
+ * up-loads the maps (each containing only that band's rows) through
+ * the usual Exporter methods and calls writeBand.  The up-loaded
+ * arrays are re-used for the next band, so each band must be written
+ * (or copied) before writeBand returns.
+ */
+public interface StreamingExporter extends Exporter {
+
+	/**
+	 * Begin writing an export (after the tile size, position and
+	 * temperatures have been set)
+	 * 
+	 * @param outputFile - name of output file
+	 */
+	boolean startFile(String outputFile);
+
+	/**
+	 * Write out the most recently up-loaded band of rows
+	 * 
+	 * @param firstRow - export row of the first up-loaded row
+	 * @param rows - number of up-loaded rows
+	 */
+	boolean writeBand(int firstRow, int rows);
+
+	/**
+	 * Finish (and close) the export
+	 */
+	boolean endFile();
+}
@@ -197,20 +197,9 @@ public class SubRegion {
 					double y2 = (last.y - Oy) / y_shrink;
 					MeshPoint p2 = newMesh.choosePoint(x2, y2);
 					
-					// note the start/end points (one of which may be oceanic)
-					boolean ocean_ok = false;
-					if (map.getDrainage().oceanic[p1.index])
-						ocean_ok = true;
-					else
-						te.startFrom(p1.index);
-					if (map.getDrainage().oceanic[p2.index])
-						ocean_ok = true;
-					else
-						te.startFrom(p2.index);
-					
 					// create a TradeRoute between those two points
-					te.reset();
-					TradeRoute newRoute = te.outwards(1,  ocean_ok);
+					//	(one of which may be oceanic)
+					TradeRoute newRoute = te.route(p1.index, p2.index);
 					if (newRoute != null)
 						newTrade.add(newRoute);
 				}
@@ -31,11 +31,24 @@ public class TerrainEngine {
 	private double e_factor;		// last used erosion factor
 	private double s_factor;		// last used sedimentation factor
 	private int adjusted;			// number of points raised/lowered
+	private boolean incremental;	// only recompute the affected basins
+	private boolean changed[];		// points changed by the last operation
 	
 	private static final int TERRAIN_DEBUG = 2;
 
 	public TerrainEngine(Map map) {
+		this(map, false);
+	}
+	
+	/**
+	 * @param map ... map on which we are operating
+	 * @param incremental ... recompute drainage/waterflow for only the
+	 *		  basins affected by each change (e.g. for interactive previews),
+	 *		  and for the whole map when changes are committed
+	 */
+	public TerrainEngine(Map map, boolean incremental) {
 		this.map = map;
+		this.incremental = incremental;
 		this.parms = Parameters.getInstance();
 		
 		// save the incoming heightMap
@@ -59,6 +72,18 @@ public class TerrainEngine {
 			thisErosion[i] = prevErosion[i];
 			thisSediment[i] = prevSediment[i];
 		}
+		changed = new boolean[prevHeight.length];
+	}
+	
+	/**
+	 * tell the map about updated heights
+	 * @param changed ... per point booleans: which heights have changed
+	 */
+	private void update(boolean changed[]) {
+		if (incremental)
+			map.setHeightMap(thisHeight, changed);
+		else
+			map.setHeightMap(thisHeight, true);
 	}
 	
 	/**
@@ -138,7 +163,7 @@ public class TerrainEngine {
 		}
 
 		// tell the map about the update
-		map.setHeightMap(thisHeight, true);
+		update(selected);
 		
 		this.adjusted = points;
 		if (parms.debug_level >= TERRAIN_DEBUG)
@@ -184,7 +209,7 @@ public class TerrainEngine {
 		}
 
 		// tell the map about the update
-		map.setHeightMap(thisHeight, true);
+		update(selected);
 		
 		this.adjusted = points;
 		if (parms.debug_level >= TERRAIN_DEBUG)
@@ -299,8 +324,10 @@ public class TerrainEngine {
 	 */
 	public boolean ridge(double x0, double y0, double x1, double y1, double height, double r1, double r2, int shape1, int shape2) {
 		// restore all heights to last committed values
-		for(int i = 0; i < prevHeight.length; i++)
+		for(int i = 0; i < prevHeight.length; i++) {
 			thisHeight[i] = prevHeight[i];
+			changed[i] = false;
+		}
 		
 		// note the two end-points and distance between them
 		MeshPoint p0 = new MeshPoint(x0, y0);
@@ -372,10 +399,11 @@ public class TerrainEngine {
 			else
 				thisHeight[i] = z_new;
 			
+			changed[i] = true;
 			points++;
 		}
 		
-		map.setHeightMap(thisHeight, true);
+		update(changed);
 		this.adjusted = points;
 		this.ridgeHeight = height;
 		this.ridgeRadius = rMax;
@@ -405,6 +433,10 @@ public class TerrainEngine {
 	 * make this heightMap official
 	 */
 	public boolean commit() {
+		// previews may have only recomputed the affected basins
+		if (incremental)
+			map.setHeightMap(thisHeight, true);
+		
 		// make the this our fall-back
 		for(int i = 0; i < prevHeight.length; i++)
 			prevHeight[i] = thisHeight[i];
@@ -21,6 +21,18 @@ public class TerritoryEngine {
 	private TradeRoutes routes;	// route management
 	Journey[] nodes;			// territorial status of every MeshPoint
 	Journey.NextSteps queue;	// queue of points to be explored
+	private TravelGraph graph;	// travel costs between neighbors
+	private boolean costed;		// graph is up to date w/parameters
+	
+	// point-to-point (A*) search state
+	private PointHeap open;		// points waiting to be explored
+	private double[] reached;	// lowest known cost to each point
+	private int[] via;			// previous point on that lowest cost path
+	private int[] opened;		// search in which each point was reached
+	private int[] closed;		// search in which each point was explored
+	private int search;			// number of the current search
+	private Landmarks landmarks;	// (ALT) lower bounds on route costs
+	private int landmarked;		// graph version for those landmarks
 	
 	// travel parameters
 	private double time_travel;	// minutes to travel one flat km
@@ -30,6 +42,7 @@ public class TerritoryEngine {
 	private double max_days;	// max days between cities
 	
 	private static final int TERRITORY_DEBUG = 2;
+	private static final int LANDMARKS = 8;	// landmarks for route bounds
 
 	/**
 	 * MeshPoints are grouped into territories, based on what city
@@ -59,6 +72,8 @@ public class TerritoryEngine {
 		this.nodes = new Journey[n];
 		Journey dummy = new Journey(-1, -1, null);
 		this.queue = dummy.new NextSteps();
+		this.graph = map.getTravelGraph();
+		this.costed = false;
 		this.routes = new TradeRoutes(map);
 		
 		// start with the current list of routes
@@ -94,6 +109,18 @@ public class TerritoryEngine {
 	public void reset() {
 		for(int i = 0; i < nodes.length; i++)
 			nodes[i] = null;
+		costed = false;
+	}
+	
+	/**
+	 * @return travel graph, with costs up to date with maps and parameters
+	 */
+	private TravelGraph travel() {
+		if (!costed) {
+			graph.update(heights, riverFlux, time_travel, time_climb, time_cross, travel_day);
+			costed = true;
+		}
+		return graph;
 	}
 
 	/**
@@ -109,11 +136,11 @@ public class TerritoryEngine {
 		nodes[point].cost = 0;
 		if (parms.debug_level >= TERRITORY_DEBUG)
 			System.out.println(String.format("start: %d %s", point, map.pointName(point)));
-		for(int j = 0; j < map.mesh.vertices[point].neighbors; j++) {
-			MeshPoint neighbor = map.mesh.vertices[point].neighbor[j];
-			int x = neighbor.index;
+		TravelGraph g = travel();
+		for(int e = g.first[point]; e < g.first[point + 1]; e++) {
+			int x = g.to[e];
 			Journey step = new Journey(x, point, nodes[point]);
-			step.cost = cost(point, x);
+			step.cost = g.cost[e];
 			nodes[x] = step;
 			queue.add(step);
 		}
@@ -132,6 +159,7 @@ public class TerritoryEngine {
 		// if he only wants one route, don't worry about length
 		boolean long_ok = needed == 1;
 		TradeRoute lastAdded = null;
+		TravelGraph g = travel();
 		
 		for( Journey step = queue.next(); step != null; step = queue.next()) {
 			// once quota is satisfied, just drain the queue
@@ -139,19 +167,18 @@ public class TerritoryEngine {
 				continue;
 			
 			// recursively explore all of our neighbors
-			MeshPoint p = map.mesh.vertices[step.index];
+			int p = step.index;
 			if (parms.debug_level >= TERRITORY_DEBUG)
-				System.out.println(String.format("%d->%d: territory=%s, cost=%f", step.route.index, p.index, 
+				System.out.println(String.format("%d->%d: territory=%s, cost=%f", step.route.index, p, 
 							map.pointName(step.city), step.cost));
 			
-			for(int i = 0; i < p.neighbors; i++) {
-				MeshPoint neighbor = p.neighbor[i];
+			for(int e = g.first[p]; e < g.first[p + 1]; e++) {
+				int neighbor_x = g.to[e];
 				// ignore edge nodes
-				if (neighbor.neighbors < 3)
+				if (g.degree(neighbor_x) < 3)
 					continue;
 
 				// already claimed nodes might be cross-overs
-				int neighbor_x = neighbor.index;
 				if (nodes[neighbor_x] != null) {
 					if (nodes[neighbor_x].city != step.city) {
 						TradeRoute r = routes.addCrossing(step, nodes[neighbor_x]);
@@ -181,7 +208,7 @@ public class TerritoryEngine {
 					continue;
 				
 				// no farther than (half) the maximum allowable inter-city journey
-				double thisCost = step.cost + cost(step.index, neighbor_x);
+				double thisCost = step.cost + g.cost[e];
 				if (thisCost > max_days/2 && !long_ok)
 					continue;
 				
@@ -196,30 +223,115 @@ public class TerritoryEngine {
 	}
 	
 	/**
-	 * compute the cost of traveling from one point to a neighbor
-	 * @param from origin point
-	 * @param to destination point
-	 * @return travel time (in days)
+	 * find the lowest cost route between two specific points
+	 * 
+	 * Rather than expanding outwards (in all directions) from both
+	 * ends, this is an A* search, guided by lower bounds on the cost
+	 * to the destination (the straight-line travel time, and the
+	 * costs to and from a few landmarks), so it only explores points
+	 * that might be on a better route than the one it finds.
+	 * 
+	 * @param from ... index of starting point
+	 * @param to ... index of destination point
+	 * @return the new TradeRoute (or null if none was added)
 	 */
-	public double cost(int from, int to) {
-		// start with our horizontal travel time
-		double dX = parms.km(map.mesh.vertices[from].distance(map.mesh.vertices[to]));
-		double minutes = dX * time_travel;
+	public TradeRoute route(int from, int to) {
+		if (from == to || (oceanic[from] && oceanic[to]))
+			return null;
 		
-		// going up-hill adds extra time
-		double dZ = parms.height(heights[to] - heights[from]);
-		if (dZ > 0)
-			minutes += dZ * time_climb / 1000.0;
+		// a route to the ocean goes to the nearest shore
+		if (oceanic[from] || oceanic[to]) {
+			reset();
+			startFrom(oceanic[from] ? to : from);
+			return outwards(1, true);
+		}
 		
-		// crossing rivers adds extra time
-		double flux = riverFlux[from];
-		if (flux > 0)
-			minutes += Math.sqrt(flux) * time_cross;
+		TravelGraph g = travel();
+		if (open == null) {
+			int n = map.mesh.vertices.length;
+			open = new PointHeap(n);
+			reached = new double[n];
+			via = new int[n];
+			opened = new int[n];
+			closed = new int[n];
+		}
+		if (landmarks == null || landmarked != g.version) {
+			boolean[] passable = new boolean[reached.length];
+			for(int x = 0; x < passable.length; x++)
+				passable[x] = g.degree(x) >= 3 && !oceanic[x] && 
+						waterLevel[x] <= heights[x] - erosion[x];
+			landmarks = new Landmarks(g, passable, LANDMARKS);
+			landmarked = g.version;
+		}
+		search++;
+		open.clear();
 		
-		if (parms.debug_level > TERRITORY_DEBUG)
-			System.out.println(String.format("    %d->%d: dX=%.3f, dZ=%.3f, flux=%.3f -> %.1f min", 
-								from, to, dX, dZ, flux, minutes));
-		return minutes / travel_day;
+		reached[from] = 0;
+		via[from] = -1;
+		opened[from] = search;
+		open.add(from, estimate(from, to));
+		int explored = 0;
+		while(!open.isEmpty()) {
+			int x = open.pop();
+			closed[x] = search;
+			explored++;
+			if (x == to)
+				break;
+			
+			for(int e = g.first[x]; e < g.first[x + 1]; e++) {
+				int y = g.to[e];
+				if (closed[y] == search)
+					continue;
+				
+				// edges, oceans and lakes are only OK as a destination
+				if (y != to) {
+					if (g.degree(y) < 3 || oceanic[y])
+						continue;
+					if (waterLevel[y] > heights[y] - erosion[y])
+						continue;
+				}
+				
+				double thisCost = reached[x] + g.cost[e];
+				if (opened[y] == search) {
+					if (thisCost >= reached[y])
+						continue;
+					reached[y] = thisCost;
+					via[y] = x;
+					open.decrease(y, thisCost + estimate(y, to));
+				} else {
+					opened[y] = search;
+					reached[y] = thisCost;
+					via[y] = x;
+					open.add(y, thisCost + estimate(y, to));
+				}
+			}
+		}
+		if (parms.debug_level >= TERRITORY_DEBUG)
+			System.out.println(String.format("route %d->%d: explored %d points", from, to, explored));
+		if (closed[to] != search)
+			return null;
+		
+		// itemize the path from the start to the destination
+		int steps = 0;
+		for(int x = to; x >= 0; x = via[x])
+			steps++;
+		int[] path = new int[steps];
+		int i = steps;
+		for(int x = to; x >= 0; x = via[x])
+			path[--i] = x;
+		return routes.addRoute(path, steps, reached[to]);
+	}
+	
+	/**
+	 * lower bound on the cost of traveling between two points
+	 * @param from origin point
+	 * @param to destination point
+	 * @return travel time (in days) no route could beat
+	 */
+	private double estimate(int from, int to) {
+		double dX = parms.km(map.mesh.vertices[from].distance(map.mesh.vertices[to]));
+		double bound = landmarks.bound(from, to);
+		return Math.max(dX * time_travel / travel_day, bound);
 	}
 	
 	/**
@@ -236,6 +348,7 @@ public class TerritoryEngine {
 		this.time_cross = t_cross;
 		this.travel_day = min_per_day;
 		this.max_days = max_days;
+		this.costed = false;
 	}
 	
 	/**
@@ -263,6 +376,7 @@ public class TerritoryEngine {
 			TradeRoute r = it.next();
 			curRoutes.add(r);
 		}
+		routes.reindex();
 		map.window.repaint();
 	}
 }
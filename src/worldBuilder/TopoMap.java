@@ -46,8 +46,10 @@ public class TopoMap {
 
 		// interpolate Z values from the latest mesh
 		Cartesian cart = map.window.getCartesian(Cartesian.vicinity.POLYGON);
-		double zArray[][] = cart.interpolate(map.getHeightMap());
-		double eArray[][] = cart.interpolate(map.getErodeMap());
+		double[][] layers = {map.getHeightMap(), map.getErodeMap()};
+		double[][][] tiles = cart.interpolate(layers, null);
+		double zArray[][] = tiles[0];
+		double eArray[][] = tiles[1];
 		
 		// allocate an over-under bitmap
 		boolean over_under[][] = new boolean[zArray.length][zArray[0].length];
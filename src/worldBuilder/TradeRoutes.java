@@ -1,5 +1,7 @@
 package worldBuilder;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Iterator;
 
@@ -16,6 +18,10 @@ import java.util.Iterator;
  *   
  *	 the second is used by Map.read() when we are simply re-loading
  *	 routes that have already been defined (we know all the steps)
+ *
+ * The routes are indexed by (unordered) city pair and by city, so that
+ * checking a crossing only looks at the routes involving that city,
+ * rather than (repeatedly) scanning every route.
  */
 public class TradeRoutes {
 
@@ -25,6 +31,10 @@ public class TradeRoutes {
 	public LinkedList<TradeRoute> routes;
 	public LinkedList<TradeRoute> indirects;
 	
+	private HashMap<Long, TradeRoute> pairs;	// first route for each city pair
+	private HashMap<Integer, ArrayList<TradeRoute>> byCity;	// direct routes for each city
+	private int indexed;	// number of (direct) routes that have been indexed
+	
 	public TradeRoutes(Map map) {
 		this.map = map;
 		this.names = map.getNameMap();
@@ -35,6 +45,56 @@ public class TradeRoutes {
 		}
 		this.indirects = new LinkedList<TradeRoute>();
 		this.parms = Parameters.getInstance();
+		reindex();
+	}
+	
+	/**
+	 * rebuild the indices (e.g. after the list of routes has been replaced)
+	 */
+	public void reindex() {
+		pairs = new HashMap<Long, TradeRoute>();
+		byCity = new HashMap<Integer, ArrayList<TradeRoute>>();
+		indexed = 0;
+		for(Iterator<TradeRoute> it = routes.iterator(); it.hasNext();)
+			index(it.next(), true);
+		for(Iterator<TradeRoute> it = indirects.iterator(); it.hasNext();)
+			index(it.next(), false);
+	}
+	
+	/**
+	 * add a route to the indices
+	 * @param r		route to be indexed
+	 * @param direct	is this a direct route
+	 */
+	private void index(TradeRoute r, boolean direct) {
+		pairs.putIfAbsent(pair(r.city1, r.city2), r);
+		if (direct) {
+			cityRoutes(r.city1).add(r);
+			if (r.city2 != r.city1)
+				cityRoutes(r.city2).add(r);
+			indexed++;
+		}
+	}
+	
+	/**
+	 * @return (unordered) key for a pair of cities
+	 */
+	private static long pair(int city1, int city2) {
+		int low = (city1 < city2) ? city1 : city2;
+		int high = (city1 < city2) ? city2 : city1;
+		return (((long) low) << 32) | (high & 0xffffffffL);
+	}
+	
+	/**
+	 * @return the (possibly new) list of direct routes for a city
+	 */
+	private ArrayList<TradeRoute> cityRoutes(int city) {
+		ArrayList<TradeRoute> list = byCity.get(city);
+		if (list == null) {
+			list = new ArrayList<TradeRoute>();
+			byCity.put(city, list);
+		}
+		return list;
 	}
 	
 	/**
@@ -50,10 +110,9 @@ public class TradeRoutes {
 			return null;
 		
 		// see if there is a cheaper route through another city
-		for(Iterator<TradeRoute> it = routes.iterator(); it.hasNext();) {
-			TradeRoute r1 = it.next();
-			if (r1.city1 != one.city && r1.city2 != one.city)
-				continue;	// this route doesn't involve us
+		ArrayList<TradeRoute> ours = byCity.get(one.city);
+		for(int i = 0; ours != null && i < ours.size(); i++) {
+			TradeRoute r1 = ours.get(i);
 			int intermediate = (r1.city1 == one.city) ? r1.city2 : r1.city1;
 			if (intermediate == -1)
 				continue;	// no going through the ocean
@@ -63,6 +122,7 @@ public class TradeRoutes {
 					r = new TradeRoute(one, other);
 					r.cost = r1.cost + r2.cost;
 					indirects.add(r);
+					index(r, false);
 					if (parms.debug_level > 0)
 						System.out.println(String.format("Indirect: %s->%s->%s: %.1f days", 
 														map.pointName(one.city), 
@@ -76,6 +136,7 @@ public class TradeRoutes {
 		// add this new route to the list
 		r = new TradeRoute(one, other);
 		routes.add(r);
+		index(r, true);
 		if (parms.debug_level > 0)
 			System.out.println(String.format("Trade route: %s to %s, %.1f days", 
 					map.pointName(one.city), map.pointName(other.city), r.cost));
@@ -84,28 +145,35 @@ public class TradeRoutes {
 	}
 	
 	
+	/**
+	 * record a (point-to-point) route whose path is already known
+	 * @param steps		array of steps (from one city to the other)
+	 * @param numsteps	number of steps in array
+	 * @param cost		cost (in days) of this route
+	 * @return new TradeRoute (or null if we already have one)
+	 */
+	public TradeRoute addRoute(int[] steps, int numsteps, double cost) {
+		if (findRoute(steps[0], steps[numsteps - 1]) != null)
+			return null;
+		
+		TradeRoute r = new TradeRoute(steps, numsteps, cost);
+		routes.add(r);
+		index(r, true);
+		if (parms.debug_level > 0)
+			System.out.println(String.format("Trade route: %s to %s, %.1f days", 
+					map.pointName(r.city1), map.pointName(r.city2), r.cost));
+		return r;
+	}
+	
 	/**
 	 * look for an existing crossing between two Journey nodes
 	 */
 	TradeRoute findRoute(int city1, int city2) {
-		// see if we already have a direct route
-		for(Iterator<TradeRoute> it = routes.iterator(); it.hasNext();) {
-			TradeRoute r = it.next();
-			if (city1 == r.city1 && city2 == r.city2)
-				return r;
-			if (city1 == r.city2 && city2 == r.city1)
-				return r;
-		}
-		
-		// see if we already have a better indirect route
-		for(Iterator<TradeRoute> it = indirects.iterator(); it.hasNext();) {
-			TradeRoute r = it.next();
-			if (city1 == r.city1 && city2 == r.city2)
-				return r;
-			if (city1 == r.city2 && city2 == r.city1)
-				return r;
-		}
+		// pick up any routes someone else added to the list
+		if (indexed != routes.size())
+			reindex();
 		
-		return null;
+		// direct routes are indexed before any indirect alternatives
+		return pairs.get(pair(city1, city2));
 	}
 }
@@ -0,0 +1,166 @@
+package worldBuilder;
+
+/**
+ * a compressed (CSR) travel graph over the Mesh, giving the cost
+ * (in days) of traveling from each MeshPoint to each of its neighbors.
+ *
+ * The edges leaving point i are first[i] to first[i+1]-1, and are
+ * stored in the same order as mesh.vertices[i].neighbor[], so that
+ * route searches can run entirely over primitive arrays.
+ *
+ * Edge costs depend on the height and flux maps and on the travel
+ * parameters.  update() compares these with the values from which
+ * the costs were last computed, and recomputes only the edges that
+ * have been affected by any changes.
+ */
+public class TravelGraph {
+
+	public Mesh mesh;			// Mesh from which the graph was built
+	public int[] first;			// index of each point's first edge
+	public int[] to;			// destination point of each edge
+	public double[] cost;		// travel time (days) along each edge
+	public int version;			// incremented whenever costs change
+
+	private double[] distance;	// length (map units) of each edge
+	private double[] lastHeight;	// heights from which costs were computed
+	private double[] lastFlux;		// fluxes from which costs were computed
+
+	// travel parameters from which costs were computed
+	private double time_travel;	// minutes to travel one flat km
+	private double time_climb;	// minutes to gain 1000 m
+	private double time_cross;	// minutes to cross 1m^3/s stream
+	private double travel_day;	// minutes of travel per day
+	private int xy_range;		// world width (km)
+	private int z_range;		// world height (m)
+
+	/**
+	 * build the (uncosted) edge lists for a Mesh
+	 * @param mesh ... Mesh whose neighbors define the edges
+	 */
+	public TravelGraph(Mesh mesh) {
+		this.mesh = mesh;
+		int n = mesh.vertices.length;
+		first = new int[n + 1];
+		for(int i = 0; i < n; i++)
+			first[i + 1] = first[i] + mesh.vertices[i].neighbors;
+
+		to = new int[first[n]];
+		cost = new double[first[n]];
+		distance = new double[first[n]];
+		for(int i = 0; i < n; i++) {
+			MeshPoint p = mesh.vertices[i];
+			for(int j = 0; j < p.neighbors; j++) {
+				to[first[i] + j] = p.neighbor[j].index;
+				distance[first[i] + j] = p.distance(p.neighbor[j]);
+			}
+		}
+		lastHeight = null;
+		lastFlux = null;
+	}
+
+	/**
+	 * @param point ... index of the point of interest
+	 * @return number of edges leaving that point
+	 */
+	public int degree(int point) {
+		return first[point + 1] - first[point];
+	}
+
+	/**
+	 * @param from ... index of origin point
+	 * @param dest ... index of (neighboring) destination point
+	 * @return index of the edge between them (or -1 if not neighbors)
+	 */
+	public int edge(int from, int dest) {
+		for(int e = first[from]; e < first[from + 1]; e++)
+			if (to[e] == dest)
+				return e;
+		return -1;
+	}
+
+	/**
+	 * bring the edge costs up to date with the maps and parameters
+	 * @param heights ... current height map
+	 * @param flux ... current river flux map
+	 * @param t_flat	minutes to travel one flat km
+	 * @param t_climb	minutes to gain 1000 meters
+	 * @param t_cross	minutes to cross a 1M^3/s stream
+	 * @param min_per_day	minutes of travel per day
+	 */
+	public void update(double[] heights, double[] flux,
+					   double t_flat, double t_climb, double t_cross, double min_per_day) {
+		Parameters parms = Parameters.getInstance();
+		int n = mesh.vertices.length;
+
+		// a change to any parameter changes every edge
+		boolean all = lastHeight == null ||
+				t_flat != time_travel || t_climb != time_climb ||
+				t_cross != time_cross || min_per_day != travel_day ||
+				parms.xy_range != xy_range || parms.z_range != z_range;
+		time_travel = t_flat;
+		time_climb = t_climb;
+		time_cross = t_cross;
+		travel_day = min_per_day;
+		xy_range = parms.xy_range;
+		z_range = parms.z_range;
+
+		if (all) {
+			lastHeight = new double[n];
+			lastFlux = new double[n];
+			for(int i = 0; i < n; i++) {
+				lastHeight[i] = heights[i];
+				lastFlux[i] = flux[i];
+			}
+			for(int i = 0; i < n; i++)
+				costEdges(i);
+			version++;
+			return;
+		}
+
+		// a height change affects edges into and out of a point,
+		// but a flux change only affects edges out of it
+		boolean[] stale = null;
+		for(int i = 0; i < n; i++) {
+			boolean moved = heights[i] != lastHeight[i];
+			if (!moved && flux[i] == lastFlux[i])
+				continue;
+			if (stale == null)
+				stale = new boolean[n];
+			stale[i] = true;
+			if (moved)
+				for(int e = first[i]; e < first[i + 1]; e++)
+					stale[to[e]] = true;
+			lastHeight[i] = heights[i];
+			lastFlux[i] = flux[i];
+		}
+		if (stale != null) {
+			for(int i = 0; i < n; i++)
+				if (stale[i])
+					costEdges(i);
+			version++;
+		}
+	}
+
+	/**
+	 * compute the costs of all edges leaving a point
+	 * @param from ... index of origin point
+	 */
+	private void costEdges(int from) {
+		Parameters parms = Parameters.getInstance();
+		for(int e = first[from]; e < first[from + 1]; e++) {
+			// start with our horizontal travel time
+			double minutes = parms.km(distance[e]) * time_travel;
+
+			// going up-hill adds extra time
+			double dZ = parms.height(lastHeight[to[e]] - lastHeight[from]);
+			if (dZ > 0)
+				minutes += dZ * time_climb / 1000.0;
+
+			// crossing rivers adds extra time
+			if (lastFlux[from] > 0)
+				minutes += Math.sqrt(lastFlux[from]) * time_cross;
+
+			cost[e] = minutes / travel_day;
+		}
+	}
+}
@@ -20,10 +20,20 @@ public class WaterFlow {
 	// maps we create, that will be pushed into the Map
 	private double waterLevel[];	// water level at each (u/w) MeshPoint
 	
+	// maps we import from Map for each recompute
+	private double heightMap[];		// Z value of each MeshPoint
+	private double erodeMap[];		// Z erosion of each MeshPoint
+	private double rainMap[];		// rainfall (cm/y) at each MeshPoint
+	private double incoming[];		// off-map river flux into each MeshPoint
+	private double soilMap[];		// soil type of each MeshPoint
+	private double e_factors[];		// erosion scaling for each MeshPoint
+	private double s_factors[];		// sedimentation scaling for each MeshPoint
+	
 	// maps we create and use to compute water flow, erosion and deposition
 	private double removal[];		// M^3 of removed soil
 	protected double suspended[]; 	// M^3 of suspended sediment per second
 	protected double velocityMap[]; // water velocity at MeshPoint
+	private double meanVelocity[];	// mean of incoming and outgoing velocity
 	
 	protected static final int UNKNOWN = -666;	// sinkMap, waterLevel
 	protected static final int OCEAN = -1;		// sinkMap: drains to ocean
@@ -43,6 +53,8 @@ public class WaterFlow {
 	
 	private static final double EXIT_DEPTH = 1.0;	// presumed depth at lake exit
 	
+	private static final int MIN_BAND = 16;		// basins per parallel task
+	
 	/**
 	 * compute water flow, water depth, and soil hydration
 	 *
@@ -66,25 +78,46 @@ public class WaterFlow {
 		recompute();
 	}
 	
+	/**
+	 * recompute water flow, erosion and deposition for every point
+	 */
 	public void recompute() {
+		recompute(null);
+	}
+	
+	/**
+	 * recompute water flow, erosion and deposition for some points
+	 * @param points ... per point booleans (which to recompute), or null for all
+	 *
+	 *	Water never flows from one drainage basin into another, so
+	 *	(if nothing but the drainage has changed since the last recompute)
+	 *	the points to be recomputed must be entire basins (including the
+	 *	ocean points into which they drain), as noted by Drainage.reflow.
+	 */
+	public void recompute(boolean points[]) {
 		// import the rainfall and arterial river influx
-		double[] heightMap = map.getHeightMap();		
-		double[] erodeMap = map.getErodeMap();
-		double[] rainMap = map.getRainMap();
-		double[] incoming = map.getIncoming();
+		heightMap = map.getHeightMap();		
+		erodeMap = map.getErodeMap();
+		rainMap = map.getRainMap();
+		incoming = map.getIncoming();
 		double[] suspMap = map.getSusp();
-		double[] soilMap = map.getSoilMap();
-		double[] e_factors = map.getE_factors();
-		double[] s_factors = map.getS_factors();
+		soilMap = map.getSoilMap();
+		e_factors = map.getE_factors();
+		s_factors = map.getS_factors();
 		double sea_level = map.getSeaLevel();
+		
+		// a partial recompute needs the results of the last one
+		if (points != null && (fluxMap != map.getFluxMap() || waterLevel != map.getWaterLevel()))
+			points = null;
 		fluxMap = map.getFluxMap();
 		
 		// allocate our internal maps
-		removal = new double[mesh.vertices.length];
-		suspended = new double[mesh.vertices.length];
-		velocityMap = new double[mesh.vertices.length];
-		int net_zero = 0;
-		int examined = 0;
+		if (points == null) {
+			removal = new double[mesh.vertices.length];
+			suspended = new double[mesh.vertices.length];
+			velocityMap = new double[mesh.vertices.length];
+			meanVelocity = new double[mesh.vertices.length];
+		}
 		
 		// how many square meters per (average) mesh point
 		area = 1000000.0 * (parms.xy_range * parms.xy_range) / mesh.vertices.length;
@@ -102,9 +135,12 @@ public class WaterFlow {
 		// 0. initialize our output maps to no flowing water, lakes, erosion
 		waterLevel = map.getWaterLevel();
 		for(int i = 0; i < mesh.vertices.length; i++) {
+			if (points != null && !points[i])
+				continue;
 			fluxMap[i] = 0.0;
 			removal[i] = 0.0;
 			velocityMap[i] = 0.0;
+			meanVelocity[i] = 0.0;
 			erodeMap[i] = 0.0;
 			waterLevel[i] = drainage.oceanic[i] ? sea_level : UNKNOWN;
 			// but we do still have suspended sediment coming from off-map
@@ -115,138 +151,89 @@ public class WaterFlow {
 		if (incoming == null && rainMap == null)
 			return;
 		
-		// pick up the erosion and evaporation parameters
-		double Ve = parms.Ve;		// erosion/deposition threshold
-		double Vmin = parms.Vmin;	// minimum velocity to carry sediment
-		double Smax = parms.Smax;	// maximum sediment per M^3 of water
+		// group the points to be recomputed by basin (in byFlow order)
+		int basin[] = drainage.basin;
+		int basinIndex[] = new int[mesh.vertices.length];
+		for(int i = 0; i < mesh.vertices.length; i++)
+			basinIndex[i] = -1;
+		int basins = 0;
+		int start[] = new int[drainage.landPoints + 1];
+		for(int i = 0; i < drainage.landPoints; i++) {
+			int x = drainage.byFlow[i];
+			if (points != null && !points[x])
+				continue;
+			if (basinIndex[basin[x]] < 0)
+				basinIndex[basin[x]] = basins++;
+			start[basinIndex[basin[x]] + 1]++;
+		}
+		for(int b = 0; b < basins; b++)
+			start[b + 1] += start[b];
+		int members[] = new int[start[basins]];
+		int next[] = new int[basins];
+		for(int i = 0; i < drainage.landPoints; i++) {
+			int x = drainage.byFlow[i];
+			if (points != null && !points[x])
+				continue;
+			int b = basinIndex[basin[x]];
+			members[start[b] + next[b]++] = x;
+		}
 		
 		// calculate the incoming flux, erosion, deposition, and water depth
+		//	(water never leaves its basin, so basins can be done in parallel,
+		//	 but the debug log wants them one at a time)
+		if (debug_log != null) {
+			for(int i = 0; i < drainage.landPoints; i++)
+				if (points == null || points[drainage.byFlow[i]])
+					flow(drainage.byFlow[i]);
+		} else
+			Parallel.forBands(basins, MIN_BAND, (first, last) -> {
+				for(int m = start[first]; m < start[last]; m++)
+					flow(members[m]);
+			});
+		
+		// find the (whole map) ranges of rainfall, flux and velocity
 		map.min_flux = TOO_BIG;
 		map.max_flux = TOO_SMALL;
 		map.min_velocity = TOO_BIG;
 		map.max_velocity = TOO_SMALL;
 		map.min_rain = TOO_BIG;
 		map.max_rain = TOO_SMALL;
+		double Vmin = parms.Vmin;	// minimum velocity to carry sediment
+		int examined = 0;
+		int net_zero = 0;
 		for(int i = 0; i < drainage.landPoints; i++) {
 			int x = drainage.byFlow[i];
-			examined++;
-
-			// keep track of min/max rainfall
+			if (points == null || points[x]) {
+				examined++;
+				if (fluxMap[x] <= 0)
+					net_zero++;
+			}
+			
+			// see if this is the worst erosion or sedimentation on the map
+			if (erodeMap[x] > map.max_erosion)
+				map.max_erosion = erodeMap[x];
+			else if (erodeMap[x] < -map.max_deposition)
+				map.max_deposition = -erodeMap[x];
+			
 			if (rainMap[x] < map.min_rain)
 				map.min_rain = rainMap[x];
 			if (rainMap[x] > map.max_rain)
 				map.max_rain = rainMap[x];
 			
-			// flux at this point is incoming + rain - evapotranspiration
-			double net = net_rain(rainMap[x], parms.altitude(heightMap[x]));
-			fluxMap[x] += incoming[x] + (rain_to_flow * net);
-			if (debug_log != null)
-				debug_log.write(String.format("x=%4d, i=%6.3f r:%.1f->%.1f, f=%6.3f/Y\n", 
-												x, incoming[x], rainMap[x], net, 
-												fluxMap[x] * YEAR));
-			
-			// if there is no outgoing flux, we are done with this point
-			if (fluxMap[x] <= 0) {
-				fluxMap[x] = 0;
-				net_zero++;
+			// points with no outgoing flux have no flux or velocity
+			if (fluxMap[x] <= 0)
 				continue;
-			}
-			
-			// figure out what happens to the excess water
-			msg = null;	// debug message string
-			int d = downHill[x];
-			if (d >= 0) {
-				// my net incoming flows to my downhill neightbor
-				fluxMap[d] += fluxMap[x];
-				
-				// our flow velocity is the fastest of our tributaries
-				double v = velocity(drainage.slopeMap[x]);
-				if (velocityMap[d] < v)
-					velocityMap[d] = v;
-				
-				// take average of my incoming and outgoing
-				v = (velocityMap[x] + velocityMap[d]) / 2;
+			if (fluxMap[x] > map.max_flux)
+				map.max_flux = fluxMap[x];
+			if (fluxMap[x] >= parms.stream_flux/10 && fluxMap[x] < map.min_flux)
+				map.min_flux = fluxMap[x];
+			if (downHill[x] >= 0) {
+				double v = meanVelocity[x];
 				if (v > map.max_velocity)
 					map.max_velocity = v;
 				if (v >= Vmin && v < map.min_velocity)
 					map.min_velocity = v;
-				
-				// we might be constructing a debug log entry
-				msg = (debug_log == null) ? null :
-					String.format("x=%4d, v=%6.3f, f=%6.3f", x, v, fluxMap[x]);
-				
-				if (v >= Ve) {	
-					// maximum carrying capacity (per second) of this river
-					double can_hold = Smax * fluxMap[x];
-					double taken = 0.0;
-					// no erosion if we are in a lake or we are already carrying max
-					if (drainage.outlet[x] == UNKNOWN && suspended[x] < can_hold) {
-						// max possible erosion at this point from this water (per second)
-						double can_take = erosion_rate((int) soilMap[x], v) * can_hold;
-						// but we cannot take more than we can hold
-						taken = Math.min(can_take, can_hold - suspended[x]);
-						removal[x] += taken;	// M^3/second of rock removal
-					}
-					
-					// compute the annual whole-point effect of that removal
-					erodeMap[x] += parms.z(annual_erosion(x)) * e_factors[x];
-					
-					// downhill gets our incoming plus our erosion
-					suspended[d] += suspended[x] + taken;
-					
-					// see if this is the worst erosion on the map
-					if (erodeMap[x] > map.max_erosion)
-						map.max_erosion = erodeMap[x];
-					
-					if (debug_log != null) {
-						msg += String.format(", e=%.6f, susp[%4d]=%.6f", taken, d, suspended[d]);
-						if (!drainage.oceanic[d])
-							msg += String.format(", vin=%6.3f, vout=%6.3f", velocityMap[x], velocityMap[d]);
-						else	
-							msg += " (flows into the ocean)";
-					}
-				} else if (suspended[x] > 0) {	// M^3/sec of incoming material
-					double dropped = fraction_dropped(v) * suspended[x];	// M^3/sec
-					removal[x] -= dropped;
-					suspended[d] += suspended[x] - dropped;
-					if (debug_log != null)
-						msg += String.format(", d=%.6f, susp[%4d]=%.6f", dropped, d, suspended[d]);
-					
-					// compute the annual whole-point effect of this deposition
-					erodeMap[x] -= parms.z(annual_sedimentation(x)) * s_factors[x];
-					
-					// see if this is the deepest sedimentation on the map
-					if (erodeMap[x] < -map.max_deposition)
-						map.max_deposition = -erodeMap[x];
-				}
 			}
-			
-			// if this point is under water, figure out how deep
-			double outlet = drainage.outlet[x];
-			if (outlet != UNKNOWN)
-				if (heightMap[x] - erodeMap[x] < outlet) {
-					waterLevel[x] = outlet;
-					if (debug_log != null)
-						msg += String.format("\n\tflood %d (at %.1fMSL) to %.1f%s u/w",
-								x, parms.altitude(heightMap[x] - erodeMap[x]),
-								parms.height(waterLevel[x]), Parameters.unit_z);
-				} else {	// escape point is trivially under water
-					// XXX water depth at exit point determined by flow?
-					waterLevel[x] = heightMap[x] -    erodeMap[x] + parms.z(EXIT_DEPTH);
-					if (debug_log != null)
-						msg += String.format("\n\tflood exit point %d@%.2f%s",
-											x, parms.height(waterLevel[x]), Parameters.unit_z);
-				}
-				
-			// debug logging
-			if (debug_log != null && msg != null)
-				debug_log.write(msg + "\n");
-			
-			// update minimum/maximum flux values
-			if (fluxMap[x] > map.max_flux)
-				map.max_flux = fluxMap[x];
-			if (fluxMap[x] >= parms.stream_flux/10 && fluxMap[x] < map.min_flux)
-				map.min_flux = fluxMap[x];
 		}
 		
 		// if there was no water flow, fix the Map min/max values
@@ -276,6 +263,107 @@ public class WaterFlow {
 		
 	}
 	
+	/**
+	 * compute the flux, erosion, deposition and water depth at a point,
+	 *	  and pass its water and sediment on to its down-hill neighbor
+	 * @param x ... index of the point (all of whose up-hill neighbors
+	 *				have already been done)
+	 */
+	private void flow(int x) {
+		// flux at this point is incoming + rain - evapotranspiration
+		double net = net_rain(rainMap[x], parms.altitude(heightMap[x]));
+		fluxMap[x] += incoming[x] + (rain_to_flow * net);
+		if (debug_log != null)
+			debug_log.write(String.format("x=%4d, i=%6.3f r:%.1f->%.1f, f=%6.3f/Y\n", 
+											x, incoming[x], rainMap[x], net, 
+											fluxMap[x] * YEAR));
+		
+		// if there is no outgoing flux, we are done with this point
+		if (fluxMap[x] <= 0) {
+			fluxMap[x] = 0;
+			return;
+		}
+		
+		// figure out what happens to the excess water
+		String msg = null;	// debug message string
+		int d = downHill[x];
+		if (d >= 0) {
+			// my net incoming flows to my downhill neightbor
+			fluxMap[d] += fluxMap[x];
+			
+			// our flow velocity is the fastest of our tributaries
+			double v = velocity(drainage.slopeMap[x]);
+			if (velocityMap[d] < v)
+				velocityMap[d] = v;
+			
+			// take average of my incoming and outgoing
+			v = (velocityMap[x] + velocityMap[d]) / 2;
+			meanVelocity[x] = v;
+			
+			// we might be constructing a debug log entry
+			msg = (debug_log == null) ? null :
+				String.format("x=%4d, v=%6.3f, f=%6.3f", x, v, fluxMap[x]);
+			
+			if (v >= parms.Ve) {	
+				// maximum carrying capacity (per second) of this river
+				double can_hold = parms.Smax * fluxMap[x];
+				double taken = 0.0;
+				// no erosion if we are in a lake or we are already carrying max
+				if (drainage.outlet[x] == UNKNOWN && suspended[x] < can_hold) {
+					// max possible erosion at this point from this water (per second)
+					double can_take = erosion_rate((int) soilMap[x], v) * can_hold;
+					// but we cannot take more than we can hold
+					taken = Math.min(can_take, can_hold - suspended[x]);
+					removal[x] += taken;	// M^3/second of rock removal
+				}
+				
+				// compute the annual whole-point effect of that removal
+				erodeMap[x] += parms.z(annual_erosion(x)) * e_factors[x];
+				
+				// downhill gets our incoming plus our erosion
+				suspended[d] += suspended[x] + taken;
+				
+				if (debug_log != null) {
+					msg += String.format(", e=%.6f, susp[%4d]=%.6f", taken, d, suspended[d]);
+					if (!drainage.oceanic[d])
+						msg += String.format(", vin=%6.3f, vout=%6.3f", velocityMap[x], velocityMap[d]);
+					else	
+						msg += " (flows into the ocean)";
+				}
+			} else if (suspended[x] > 0) {	// M^3/sec of incoming material
+				double dropped = fraction_dropped(v) * suspended[x];	// M^3/sec
+				removal[x] -= dropped;
+				suspended[d] += suspended[x] - dropped;
+				if (debug_log != null)
+					msg += String.format(", d=%.6f, susp[%4d]=%.6f", dropped, d, suspended[d]);
+				
+				// compute the annual whole-point effect of this deposition
+				erodeMap[x] -= parms.z(annual_sedimentation(x)) * s_factors[x];
+			}
+		}
+		
+		// if this point is under water, figure out how deep
+		double outlet = drainage.outlet[x];
+		if (outlet != UNKNOWN)
+			if (heightMap[x] - erodeMap[x] < outlet) {
+				waterLevel[x] = outlet;
+				if (debug_log != null)
+					msg += String.format("\n\tflood %d (at %.1fMSL) to %.1f%s u/w",
+							x, parms.altitude(heightMap[x] - erodeMap[x]),
+							parms.height(waterLevel[x]), Parameters.unit_z);
+			} else {	// escape point is trivially under water
+				// XXX water depth at exit point determined by flow?
+				waterLevel[x] = heightMap[x] -    erodeMap[x] + parms.z(EXIT_DEPTH);
+				if (debug_log != null)
+					msg += String.format("\n\tflood exit point %d@%.2f%s",
+										x, parms.height(waterLevel[x]), Parameters.unit_z);
+			}
+			
+		// debug logging
+		if (debug_log != null && msg != null)
+			debug_log.write(msg + "\n");
+	}
+	
 	/**
 	 * estimated erosion
 	 * @param index of point being checked
@@ -0,0 +1,81 @@
+"""
+Compare the water and erosion in two Raw JSON exports of the same region
+(e.g. made with the escape-scan and priority-flood drainage algorithms)
+"""
+from optparse import OptionParser
+from sys import stdout, stderr, exit
+import json
+
+
+def meters(point, attribute):
+    """
+    return the (meters) value of an attribute of a point (or 0)
+    """
+    if attribute not in point:
+        return 0.0
+    return float(point[attribute].rstrip('m'))
+
+
+def compare(file_a, file_b):
+    """
+    summarize the differences in water depth and erosion between two
+    exports of the same region
+    """
+    with open(file_a, 'r') as infile:
+        a = json.load(infile)
+    with open(file_b, 'r') as infile:
+        b = json.load(infile)
+
+    if a["dimensions"] != b["dimensions"]:
+        stderr.write("ERROR: exports have different dimensions\n")
+        exit(-1)
+
+    points = 0
+    wet_a = 0           # tiles under water in a
+    wet_b = 0           # tiles under water in b
+    only_a = 0          # tiles under water only in a
+    only_b = 0          # tiles under water only in b
+    deeper = 0          # tiles that are wet in both, but differ in depth
+    eroded = 0          # tiles whose erosion/deposition differ
+    max_depth = 0.0     # largest difference in water depth
+    max_erode = 0.0     # largest difference in erosion
+    for (p, q) in zip(a["points"], b["points"]):
+        points += 1
+        d_a = meters(p, "depth")
+        d_b = meters(q, "depth")
+        if d_a > 0:
+            wet_a += 1
+        if d_b > 0:
+            wet_b += 1
+        if d_a > 0 and d_b == 0:
+            only_a += 1
+        elif d_b > 0 and d_a == 0:
+            only_b += 1
+        elif d_a != d_b:
+            deeper += 1
+        max_depth = max(max_depth, abs(d_a - d_b))
+
+        e_a = meters(p, "erosion")
+        e_b = meters(q, "erosion")
+        if e_a != e_b:
+            eroded += 1
+        max_erode = max(max_erode, abs(e_a - e_b))
+
+    stdout.write("    %d tiles, wet: %d vs %d (only first: %d, only second: %d)\n"
+                 % (points, wet_a, wet_b, only_a, only_b))
+    stdout.write("    depth differs on %d wet tiles (max %.3fm), erosion on %d (max %.3fm)\n"
+                 % (deeper, max_depth, eroded, max_erode))
+
+
+if __name__ == "__main__":
+    # process the comand line arguments
+    msg = "usage: %prog first_export second_export"
+    parser = OptionParser(usage=msg)
+    (opts, files) = parser.parse_args()
+
+    if len(files) != 2:
+        stderr.write(msg + "\n")
+        exit(-1)
+
+    compare(files[0], files[1])
+    exit(0)